@@ -18,4 +18,48 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# JNI binds native methods by class and method name.
+-keepclasseswithmembernames,includedescriptorclasses class * {
+    native <methods>;
+}
+
+# CameraKit and JpegKit keep their native handles in fields of the classes
+# that declare the native methods, and the native side reads them by name.
+# Keep those classes and their fields; the rest of both libraries shrinks.
+-keepclasseswithmembers,includedescriptorclasses class com.camerakit.**, com.jpegkit.** {
+    native <methods>;
+}
+-if class com.camerakit.** { native <methods>; }
+-keepclassmembers class com.camerakit.<1> {
+    <fields>;
+}
+-if class com.jpegkit.** { native <methods>; }
+-keepclassmembers class com.jpegkit.<1> {
+    <fields>;
+}
+
+# OkHttp ships its own consumer rules; these optional TLS providers are only
+# used when present at runtime.
+-dontwarn okhttp3.internal.platform.**
+-dontwarn org.bouncycastle.**
+-dontwarn org.conscrypt.**
+-dontwarn org.openjsse.**
+
+# Coroutines finds the Android main dispatcher through ServiceLoader.
+-keepnames class kotlinx.coroutines.internal.MainDispatcherFactory {}
+-keepnames class kotlinx.coroutines.CoroutineExceptionHandler {}
+-keepclassmembers class kotlinx.coroutines.** {
+    volatile <fields>;
+}
+
+# R8 full mode drops the default constructor of classes only created
+# reflectively, keep the ones the framework instantiates by name.
+-keepclassmembers class * extends androidx.fragment.app.Fragment {
+    public <init>();
+}
+
+# Keep line numbers so field crash reports stay readable.
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
@@ -0,0 +1,108 @@
+package com.clearbin.app;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Speculative warm-up of the detection backend.
+ *
+ * Sends a bodyless HEAD to the detect URL so the TLS connection is open in
+ * the shared pool and an idle server is already waking up by the time the
+ * real upload goes out. At most one ping is in flight and pings are at least
+ * {@code minIntervalMillis} apart; each failure doubles the wait, up to
+ * {@code maxBackoffMillis}. When to call {@link #warmUp} (foreground only,
+ * not on metered data) is up to the caller.
+ */
+public class BackendWarmer {
+
+    public interface Clock {
+        long millis();
+    }
+
+    public interface Listener {
+        /** {@code code} is the HTTP status, or -1 if the ping failed. */
+        void onWarmUp(int code, long millis);
+    }
+
+    public static final long MIN_INTERVAL_MILLIS = 60_000;
+    public static final long MAX_BACKOFF_MILLIS = 10 * 60_000;
+
+    private final Call.Factory http;
+    private final String url;
+    private final long minIntervalMillis;
+    private final long maxBackoffMillis;
+    private final Clock clock;
+
+    private Listener listener;
+    private boolean inFlight;
+    private long nextAllowedAt = Long.MIN_VALUE;
+    private long backoffMillis;
+
+    public BackendWarmer(Call.Factory http, String url) {
+        this(http, url, MIN_INTERVAL_MILLIS, MAX_BACKOFF_MILLIS, () -> System.nanoTime() / 1_000_000);
+    }
+
+    public BackendWarmer(Call.Factory http, String url, long minIntervalMillis, long maxBackoffMillis, Clock clock) {
+        this.http = http;
+        this.url = url;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.clock = clock;
+        this.backoffMillis = minIntervalMillis;
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Starts a ping unless one is in flight or the rate limit says wait. Returns whether it did. */
+    public synchronized boolean warmUp() {
+        long now = clock.millis();
+        if (inFlight || now < nextAllowedAt) {
+            return false;
+        }
+        inFlight = true;
+
+        Request request = new Request.Builder().url(url).head().build();
+        http.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                // A 5xx usually means the server is still booting, so retry later rather than sooner.
+                finished(now, response.code(), response.code() < 500);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                finished(now, -1, false);
+            }
+        });
+        return true;
+    }
+
+    private void finished(long startedAt, int code, boolean success) {
+        Listener listener;
+        long millis;
+        synchronized (this) {
+            long now = clock.millis();
+            millis = now - startedAt;
+            if (success) {
+                backoffMillis = minIntervalMillis;
+            } else {
+                backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+            }
+            nextAllowedAt = now + (success ? minIntervalMillis : backoffMillis);
+            inFlight = false;
+            listener = this.listener;
+        }
+
+        EventLog.log(EventLog.WARM_UP, code, millis, 0);
+        if (listener != null) {
+            listener.onWarmUp(code, millis);
+        }
+    }
+}
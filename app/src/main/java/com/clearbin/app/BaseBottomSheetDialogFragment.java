@@ -1,7 +1,6 @@
 package com.clearbin.app;
 
 import android.os.Build;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -27,7 +26,7 @@ public class BaseBottomSheetDialogFragment extends BottomSheetDialogFragment {
             ft.add(this, tag);
             ft.commitAllowingStateLoss();
         } catch (IllegalStateException e) {
-            Log.d("BOTTOMSHEET-DIALOGFRAG", "Exception", e);
+            EventLog.error(EventLog.SITE_BOTTOM_SHEET, e);
         }
     }
 }
@@ -0,0 +1,96 @@
+package com.clearbin.app;
+
+/**
+ * Cheap pre-upload check that catches captures the backend cannot classify.
+ *
+ * Works on a downsampled ARGB capture (around 500px on the long side).
+ * Sharpness is the variance of the Laplacian, taken over the most detailed
+ * tile of a 4x4 grid so a sharp object on a plain background still passes,
+ * minus that of the flattest tile, which is mostly sensor noise. Blur
+ * flattens the Laplacian everywhere, so the difference collapses.
+ * Exposure is the mean luminance and the share of near-black pixels.
+ *
+ * The thresholds are only tuned against the synthetic scenes in
+ * CaptureQualityTest. Captures are blocked only where the QUALITY_GATE build
+ * flag is set (debug and canary) until field data confirms them.
+ */
+public class CaptureQuality {
+
+    public static final int OK = 0;
+    public static final int BLURRY = 1;
+    public static final int TOO_DARK = 2;
+
+    private static final int GRID = 4;
+    /** Noise-corrected Laplacian variance of the sharpest tile below which the shot is blurred. */
+    private static final double MIN_SHARPNESS = 12;
+    /** Cap on the noise estimate, so a capture without any flat area is not mistaken for noise. */
+    private static final double MAX_NOISE_VARIANCE = 60;
+    private static final double MIN_MEAN_LUMA = 45;
+    private static final int BLACK_LUMA = 24;
+    private static final double MAX_BLACK_SHARE = 0.7;
+
+    public final int verdict;
+    public final double sharpness;
+    public final double meanLuma;
+
+    private CaptureQuality(int verdict, double sharpness, double meanLuma) {
+        this.verdict = verdict;
+        this.sharpness = sharpness;
+        this.meanLuma = meanLuma;
+    }
+
+    public boolean isAcceptable() {
+        return verdict == OK;
+    }
+
+    public static CaptureQuality check(int[] pixels, int width, int height) {
+        int[] luma = new int[width * height];
+        long lumaSum = 0;
+        int black = 0;
+        for (int i = 0; i < luma.length; i++) {
+            int p = pixels[i];
+            int y = (((p >> 16) & 0xff) * 77 + ((p >> 8) & 0xff) * 150 + (p & 0xff) * 29) >> 8;
+            luma[i] = y;
+            lumaSum += y;
+            if (y < BLACK_LUMA) {
+                black++;
+            }
+        }
+        double meanLuma = luma.length == 0 ? 0 : (double) lumaSum / luma.length;
+
+        long[] sums = new long[GRID * GRID];
+        long[] squares = new long[GRID * GRID];
+        int[] counts = new int[GRID * GRID];
+        for (int y = 1; y < height - 1; y++) {
+            int row = (y * GRID / height) * GRID;
+            for (int x = 1; x < width - 1; x++) {
+                int i = y * width + x;
+                int laplacian = 4 * luma[i] - luma[i - 1] - luma[i + 1] - luma[i - width] - luma[i + width];
+                int tile = row + x * GRID / width;
+                sums[tile] += laplacian;
+                squares[tile] += laplacian * laplacian;
+                counts[tile]++;
+            }
+        }
+
+        double sharpest = 0;
+        double flattest = Double.MAX_VALUE;
+        for (int tile = 0; tile < counts.length; tile++) {
+            if (counts[tile] > 0) {
+                double mean = (double) sums[tile] / counts[tile];
+                double variance = (double) squares[tile] / counts[tile] - mean * mean;
+                sharpest = Math.max(sharpest, variance);
+                flattest = Math.min(flattest, variance);
+            }
+        }
+        double sharpness = sharpest - Math.min(flattest, MAX_NOISE_VARIANCE);
+
+        int verdict = OK;
+        if (meanLuma < MIN_MEAN_LUMA || black > MAX_BLACK_SHARE * luma.length) {
+            verdict = TOO_DARK;
+        } else if (sharpness < MIN_SHARPNESS) {
+            verdict = BLURRY;
+        }
+        return new CaptureQuality(verdict, sharpness, meanLuma);
+    }
+}
@@ -0,0 +1,27 @@
+package com.clearbin.app;
+
+import android.app.Application;
+
+public class ClearBinApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        if (BuildConfig.WATCHDOG) {
+            Watchdog.install(this);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            if (BuildConfig.WATCHDOG) {
+                Watchdog.export();
+            }
+            EventLog.dump(this);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.clearbin.app;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Names an encoded image by its content so the server can recognise images
+ * it has already seen.
+ */
+public interface ContentHasher {
+
+    ContentHasher SHA_256 = data -> {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    };
+
+    /** Returns the lowercase hex digest of {@code data}. */
+    String hash(byte[] data);
+}
@@ -0,0 +1,49 @@
+package com.clearbin.app;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+
+/**
+ * Sends encoded captures to the detection backend.
+ */
+public class DetectionClient {
+
+    public static final String API_DETECT_URL = "https://clearbin-bk.herokuapp.com/detect";
+
+    private static DetectionClient sDefault;
+
+    private final Call.Factory http;
+    private final String detectUrl;
+    private final UploadProtocol protocol;
+    private final BackendWarmer warmer;
+
+    public DetectionClient(Call.Factory http, String detectUrl, UploadProtocol protocol) {
+        this.http = http;
+        this.detectUrl = detectUrl;
+        this.protocol = protocol;
+        this.warmer = new BackendWarmer(http, detectUrl);
+    }
+
+    /** The app-wide client, sharing one connection pool across scans. */
+    public static synchronized DetectionClient getDefault() {
+        if (sDefault == null) {
+            UploadProtocol protocol = BuildConfig.HASH_FIRST_UPLOAD
+                    ? new HashFirstUpload(ContentHasher.SHA_256) : new DirectUpload();
+            sDefault = new DetectionClient(new OkHttpClient(), API_DETECT_URL, protocol);
+        }
+        return sDefault;
+    }
+
+    /** Warms the connection {@link #detect} will use. */
+    public BackendWarmer warmer() {
+        return warmer;
+    }
+
+    public DetectionResult detect(byte[] image) throws IOException, JSONException {
+        return protocol.detect(http, detectUrl, image);
+    }
+}
@@ -0,0 +1,16 @@
+package com.clearbin.app;
+
+import java.io.IOException;
+
+/**
+ * The detection endpoint answered with a non-2xx status.
+ */
+public class DetectionHttpException extends IOException {
+
+    public final int code;
+
+    public DetectionHttpException(int code, String message) {
+        super("HTTP " + code + " " + message);
+        this.code = code;
+    }
+}
@@ -0,0 +1,43 @@
+package com.clearbin.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The fields of a {@code /detect} response.
+ */
+public class DetectionResult {
+
+    public static final String NO_DETECTED_MSG = "No object detected.";
+
+    public final String message;
+    public final String predTime;
+    public final String confidence;
+    public final String cluster;
+    public final String clusterName;
+    public final String materials;
+
+    public DetectionResult(String message, String predTime, String confidence,
+                           String cluster, String clusterName, String materials) {
+        this.message = message;
+        this.predTime = predTime;
+        this.confidence = confidence;
+        this.cluster = cluster;
+        this.clusterName = clusterName;
+        this.materials = materials;
+    }
+
+    public static DetectionResult fromJson(JSONObject json) throws JSONException {
+        return new DetectionResult(
+                json.getString("message"),
+                json.getString("pred_time"),
+                json.getString("confidence"),
+                json.getString("cluster"),
+                json.getString("cluster_name"),
+                json.getString("materials"));
+    }
+
+    public boolean isDetected() {
+        return !NO_DETECTED_MSG.equals(message);
+    }
+}
@@ -0,0 +1,52 @@
+package com.clearbin.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.ByteString;
+
+/**
+ * Posts the whole image as {@code imgb64} on every scan.
+ */
+public class DirectUpload implements UploadProtocol {
+
+    static final MediaType JSON = MediaType.parse("application/json");
+
+    @Override
+    public DetectionResult detect(Call.Factory http, String detectUrl, byte[] image) throws IOException, JSONException {
+        JSONObject reqJsonObject = new JSONObject();
+        reqJsonObject.put("imgb64", toDataUrl(image));
+
+        try (Response response = post(http, detectUrl, reqJsonObject)) {
+            return parse(response);
+        }
+    }
+
+    /** Reads the detection from a successful response, or throws {@link DetectionHttpException}. */
+    static DetectionResult parse(Response response) throws IOException, JSONException {
+        if (!response.isSuccessful()) {
+            throw new DetectionHttpException(response.code(), response.message());
+        }
+        return DetectionResult.fromJson(new JSONObject(response.body().string()));
+    }
+
+    static String toDataUrl(byte[] image) {
+        return "data:image/jpeg;base64," + ByteString.of(image).base64();
+    }
+
+    static Response post(Call.Factory http, String url, JSONObject body) throws IOException {
+        Request postRequest = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(body.toString(), JSON))
+                .build();
+
+        return http.newCall(postRequest).execute();
+    }
+}
@@ -0,0 +1,105 @@
+package com.clearbin.app;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * App-wide structured event log on top of {@link EventRing}.
+ *
+ * Enabled by the EVENT_LOG build flag. In release builds {@link #ENABLED} is
+ * a constant false, so every method body compiles to nothing and R8 inlines
+ * the calls away.
+ */
+public final class EventLog {
+
+    public static final boolean ENABLED = BuildConfig.EVENT_LOG;
+
+    /** a: cluster (-1 when nothing was detected), b: confidence in 1/1000, c: pred_time in ms. */
+    public static final int DETECT_RESULT = 1;
+    /** a: crop width, b: crop height, c: full frame pixels. */
+    public static final int ROI_CROP = 2;
+    /** a: ms from result screen start to the first painted preview. */
+    public static final int RESULT_FIRST_PAINT = 3;
+    /** a: ms from result screen start to the display-sized image. */
+    public static final int RESULT_DISPLAY_IMAGE = 4;
+    /** a: ms from camera resume to the first preview frame. */
+    public static final int CAMERA_FIRST_FRAME = 5;
+    /** a: site (one of the SITE_ constants), b: throwable sequence number in the dump. */
+    public static final int ERROR = 6;
+    /** a: {@link CaptureQuality} verdict, b: sharpness, c: check duration in us. */
+    public static final int QUALITY_CHECK = 7;
+    /** a: verdict of a rejected shot the user sent anyway, the next DETECT_RESULT shows if it was usable. */
+    public static final int QUALITY_OVERRIDE = 8;
+    /** a: HTTP status of the warm-up ping (-1 on failure), b: round trip in ms. */
+    public static final int WARM_UP = 9;
+    /** a: us to decode the capture for the quality check, b: decoded long side, c: inSampleSize. */
+    public static final int CAPTURE_DECODE = 10;
+
+    public static final int SITE_SAVE_CAPTURE = 1;
+    public static final int SITE_DETECT = 2;
+    public static final int SITE_EXIF_THUMBNAIL = 3;
+    public static final int SITE_BOTTOM_SHEET = 4;
+
+    private static final String[] NAMES = {
+            null, "DETECT_RESULT", "ROI_CROP", "RESULT_FIRST_PAINT", "RESULT_DISPLAY_IMAGE",
+            "CAMERA_FIRST_FRAME", "ERROR", "QUALITY_CHECK", "QUALITY_OVERRIDE", "WARM_UP",
+            "CAPTURE_DECODE"
+    };
+
+    private static final int CAPACITY = 4096;
+    private static final int THROWABLE_CAPACITY = 32;
+
+    private static final EventRing RING = ENABLED ? new EventRing(CAPACITY, THROWABLE_CAPACITY) : null;
+
+    private EventLog() {
+    }
+
+    public static void log(int event, long a) {
+        if (ENABLED) {
+            RING.log(event, a, 0, 0);
+        }
+    }
+
+    public static void log(int event, long a, long b, long c) {
+        if (ENABLED) {
+            RING.log(event, a, b, c);
+        }
+    }
+
+    public static void error(int site, Throwable throwable) {
+        if (ENABLED) {
+            RING.logThrowable(ERROR, site, throwable);
+        }
+    }
+
+    public static void detection(DetectionResult result) {
+        if (ENABLED) {
+            RING.log(DETECT_RESULT,
+                    result.isDetected() ? EventRing.parseScaled(result.cluster, 1) : -1,
+                    EventRing.parseScaled(result.confidence, 1000),
+                    EventRing.parseScaled(result.predTime, 1000));
+        }
+    }
+
+    /** Writes the log to {@code Android/data/<package>/files/events.log} on a background thread. */
+    public static void dump(Context context) {
+        if (!ENABLED) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            File file = new File(appContext.getExternalFilesDir(null), "events.log");
+            try (Writer writer = new FileWriter(file)) {
+                RING.writeTo(writer, NAMES);
+            } catch (IOException e) {
+                Log.d("EventLog", "Dump failed", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,108 @@
+package com.clearbin.app;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated ring of fixed-size event records.
+ *
+ * A record is a timestamp, an event id and three long arguments, stored in
+ * one {@code long[]}. Writers claim a slot with an atomic counter, so
+ * {@link #log} never allocates and never blocks. Throwables go into a
+ * separate small ring of references and are printed only when the log is
+ * dumped. Once full, the oldest records are overwritten.
+ */
+public class EventRing {
+
+    private static final int RECORD_LONGS = 5;
+
+    private final long[] records;
+    private final int capacity;
+    private final AtomicLong next = new AtomicLong();
+
+    private final Throwable[] throwables;
+    private final AtomicLong nextThrowable = new AtomicLong();
+
+    public EventRing(int capacity, int throwableCapacity) {
+        this.capacity = capacity;
+        this.records = new long[capacity * RECORD_LONGS];
+        this.throwables = new Throwable[throwableCapacity];
+    }
+
+    public void log(int event, long a, long b, long c) {
+        int slot = (int) (next.getAndIncrement() % capacity) * RECORD_LONGS;
+        records[slot] = System.nanoTime();
+        records[slot + 1] = event;
+        records[slot + 2] = a;
+        records[slot + 3] = b;
+        records[slot + 4] = c;
+    }
+
+    /** Records {@code event} with {@code site} as first argument and a reference to {@code throwable}. */
+    public void logThrowable(int event, long site, Throwable throwable) {
+        long sequence = nextThrowable.getAndIncrement();
+        throwables[(int) (sequence % throwables.length)] = throwable;
+        log(event, site, sequence, 0);
+    }
+
+    public int size() {
+        return (int) Math.min(next.get(), capacity);
+    }
+
+    /** Writes the records oldest first, one per line, followed by the retained throwables. */
+    public void writeTo(Writer writer, String[] eventNames) throws IOException {
+        PrintWriter out = new PrintWriter(writer);
+        long end = next.get();
+        for (long i = Math.max(0, end - capacity); i < end; i++) {
+            int slot = (int) (i % capacity) * RECORD_LONGS;
+            int event = (int) records[slot + 1];
+            String name = event >= 0 && event < eventNames.length && eventNames[event] != null
+                    ? eventNames[event] : String.valueOf(event);
+            out.println(records[slot] + " " + name + " " + records[slot + 2] + " "
+                    + records[slot + 3] + " " + records[slot + 4]);
+        }
+
+        long endThrowable = nextThrowable.get();
+        for (long i = Math.max(0, endThrowable - throwables.length); i < endThrowable; i++) {
+            Throwable throwable = throwables[(int) (i % throwables.length)];
+            if (throwable != null) {
+                out.print("throwable #" + i + ": ");
+                throwable.printStackTrace(out);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Parses a decimal string such as {@code "0.91"} into a long scaled by
+     * {@code scale} ({@code 910} for a scale of 1000) without allocating.
+     * Returns -1 when the text is not a plain non-negative decimal.
+     */
+    public static long parseScaled(String text, long scale) {
+        if (text == null || text.isEmpty()) {
+            return -1;
+        }
+        long whole = 0;
+        long fraction = 0;
+        long divisor = 1;
+        boolean inFraction = false;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '.' && !inFraction) {
+                inFraction = true;
+            } else if (ch >= '0' && ch <= '9') {
+                if (!inFraction) {
+                    whole = whole * 10 + (ch - '0');
+                } else if (divisor < scale) {
+                    fraction = fraction * 10 + (ch - '0');
+                    divisor *= 10;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return whole * scale + fraction * scale / divisor;
+    }
+}
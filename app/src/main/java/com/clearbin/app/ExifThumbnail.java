@@ -0,0 +1,126 @@
+package com.clearbin.app;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pulls the JPEG thumbnail most cameras embed in a capture's EXIF block.
+ *
+ * Only the segments in front of the EXIF block are read, so this costs a few
+ * kilobytes of I/O however large the capture is.
+ */
+public class ExifThumbnail {
+
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_APP1 = 0xE1;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_EOI = 0xD9;
+
+    private static final int TAG_JPEG_INTERCHANGE_FORMAT = 0x0201;
+    private static final int TAG_JPEG_INTERCHANGE_FORMAT_LENGTH = 0x0202;
+
+    /** Returns the embedded thumbnail of the JPEG at {@code path}, or null if there is none. */
+    public static byte[] read(String path) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+            return read(in);
+        }
+    }
+
+    public static byte[] read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        try {
+            if (in.readUnsignedByte() != 0xFF || in.readUnsignedByte() != MARKER_SOI) {
+                return null;
+            }
+
+            while (true) {
+                if (in.readUnsignedByte() != 0xFF) {
+                    return null;
+                }
+                int marker = in.readUnsignedByte();
+                if (marker == 0xFF) {
+                    continue;
+                }
+                if (marker == MARKER_SOS || marker == MARKER_EOI) {
+                    return null;
+                }
+
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return null;
+                }
+                byte[] segment = new byte[length];
+                in.readFully(segment);
+
+                if (marker == MARKER_APP1 && isExif(segment)) {
+                    return fromTiff(segment, 6);
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static boolean isExif(byte[] segment) {
+        return segment.length > 6 && segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i'
+                && segment[3] == 'f' && segment[4] == 0 && segment[5] == 0;
+    }
+
+    /** Walks IFD0 to IFD1 of the TIFF structure at {@code base} and returns the thumbnail it points at. */
+    private static byte[] fromTiff(byte[] data, int base) {
+        boolean littleEndian = data[base] == 'I' && data[base + 1] == 'I';
+        if (!littleEndian && !(data[base] == 'M' && data[base + 1] == 'M')) {
+            return null;
+        }
+
+        try {
+            int ifd0 = readInt(data, base + 4, littleEndian);
+            int ifd0Entries = readShort(data, base + ifd0, littleEndian);
+            int ifd1 = readInt(data, base + ifd0 + 2 + ifd0Entries * 12, littleEndian);
+            if (ifd1 == 0) {
+                return null;
+            }
+
+            int entries = readShort(data, base + ifd1, littleEndian);
+            int offset = -1;
+            int length = -1;
+            for (int i = 0; i < entries; i++) {
+                int entry = base + ifd1 + 2 + i * 12;
+                int tag = readShort(data, entry, littleEndian);
+                if (tag == TAG_JPEG_INTERCHANGE_FORMAT) {
+                    offset = readInt(data, entry + 8, littleEndian);
+                } else if (tag == TAG_JPEG_INTERCHANGE_FORMAT_LENGTH) {
+                    length = readInt(data, entry + 8, littleEndian);
+                }
+            }
+
+            int start = base + offset;
+            if (offset <= 0 || length <= 2 || start + length > data.length
+                    || (data[start] & 0xFF) != 0xFF || (data[start + 1] & 0xFF) != MARKER_SOI) {
+                return null;
+            }
+
+            byte[] thumbnail = new byte[length];
+            System.arraycopy(data, start, thumbnail, 0, length);
+            return thumbnail;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return littleEndian ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int a = readShort(data, offset, littleEndian);
+        int b = readShort(data, offset + 2, littleEndian);
+        return littleEndian ? (b << 16) | a : (a << 16) | b;
+    }
+}
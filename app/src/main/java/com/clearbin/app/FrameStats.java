@@ -0,0 +1,39 @@
+package com.clearbin.app;
+
+/**
+ * Frame durations collected while one screen is in the foreground.
+ */
+public class FrameStats {
+
+    private static final long FRAME_NANOS = 16_666_667L;
+    /** A frame taking longer than this many vsync intervals counts as jank. */
+    private static final int JANK_FRAMES = 2;
+
+    private int frames;
+    private int janky;
+    private long maxNanos;
+    private long totalNanos;
+
+    public void record(long durationNanos) {
+        frames++;
+        totalNanos += durationNanos;
+        maxNanos = Math.max(maxNanos, durationNanos);
+        if (durationNanos > JANK_FRAMES * FRAME_NANOS) {
+            janky++;
+        }
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public int getJanky() {
+        return janky;
+    }
+
+    public String summary() {
+        return "frames=" + frames + " janky=" + janky
+                + " max=" + maxNanos / 1_000_000 + "ms"
+                + " avg=" + (frames == 0 ? 0 : totalNanos / frames / 1_000_000) + "ms";
+    }
+}
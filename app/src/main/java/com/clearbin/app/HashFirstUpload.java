@@ -0,0 +1,61 @@
+package com.clearbin.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.Response;
+
+/**
+ * Asks the server for a cached detection before uploading the image.
+ *
+ * The lookup request carries only {@code sha256}, the hash of the encoded
+ * image. A server that has seen those bytes answers 200 with the usual
+ * detection body. Anything else is a miss, and the image is posted as
+ * {@code imgb64} together with its hash so the server can cache the result.
+ *
+ * Lookups are only sent once the server has advertised them with an
+ * {@value #LOOKUP_HEADER} response header; until then every scan is a single
+ * full upload, so a server without the handshake never pays an extra round
+ * trip. Support is remembered for the lifetime of this instance.
+ */
+public class HashFirstUpload implements UploadProtocol {
+
+    static final String LOOKUP_HEADER = "X-Hash-Lookup";
+
+    private final ContentHasher hasher;
+    private volatile boolean lookupSupported;
+
+    public HashFirstUpload(ContentHasher hasher) {
+        this.hasher = hasher;
+    }
+
+    @Override
+    public DetectionResult detect(Call.Factory http, String detectUrl, byte[] image) throws IOException, JSONException {
+        String hash = hasher.hash(image);
+
+        if (lookupSupported) {
+            JSONObject lookup = new JSONObject();
+            lookup.put("sha256", hash);
+            try (Response response = DirectUpload.post(http, detectUrl, lookup)) {
+                if (response.code() == 200) {
+                    return DetectionResult.fromJson(new JSONObject(response.body().string()));
+                }
+            } catch (JSONException e) {
+                // Not a detection after all, the full upload below settles it.
+            }
+        }
+
+        JSONObject upload = new JSONObject();
+        upload.put("sha256", hash);
+        upload.put("imgb64", DirectUpload.toDataUrl(image));
+        try (Response response = DirectUpload.post(http, detectUrl, upload)) {
+            if ("sha256".equalsIgnoreCase(response.header(LOOKUP_HEADER))) {
+                lookupSupported = true;
+            }
+            return DirectUpload.parse(response);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.clearbin.app;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resizes, color converts and normalizes full-resolution captures on all cores.
+ *
+ * One fused pass turns an ARGB capture into an area-averaged RGB image of the
+ * requested size and, optionally, into per-channel normalized float planes
+ * (CHW order, the layout image models take). The output rows are split into
+ * bands that a fork-join pool works on in parallel: a few per thread so
+ * uneven cores balance out, but none covering fewer than
+ * {@link #MIN_TILE_SOURCE_PIXELS} source pixels, so small images are not
+ * drowned in scheduling overhead.
+ *
+ * Callers own the pixel buffers and are expected to reuse them across scans.
+ * The bands and the column lookup table are built when the source or target
+ * size changes and reused after that, so repeated scans of the same size do
+ * not allocate. {@link #process} is not reentrant.
+ */
+public class ImagePreprocessor {
+
+    /** ImageNet channel means and standard deviations, on a 0..1 scale. */
+    public static final float[] IMAGENET_MEAN = {0.485f, 0.456f, 0.406f};
+    public static final float[] IMAGENET_STD = {0.229f, 0.224f, 0.225f};
+
+    private static final int MIN_TILE_SOURCE_PIXELS = 1 << 16;
+    private static final int BANDS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    /** value -> normalized value, per channel. */
+    private final float[][] normalizeTable = new float[3][256];
+    private final Pass pass = new Pass();
+
+    private int[] columnStarts = new int[0];
+    private Band[] bands = new Band[0];
+
+    private int srcWidth;
+    private int srcHeight;
+    private int dstWidth;
+    private int dstHeight;
+
+    private int[] argb;
+    private byte[] rgb;
+    private float[] normalized;
+
+    public ImagePreprocessor() {
+        this(Runtime.getRuntime().availableProcessors(), IMAGENET_MEAN, IMAGENET_STD);
+    }
+
+    public ImagePreprocessor(int parallelism, float[] mean, float[] std) {
+        this.pool = new ForkJoinPool(parallelism);
+        for (int channel = 0; channel < 3; channel++) {
+            for (int value = 0; value < 256; value++) {
+                normalizeTable[channel][value] = (value / 255f - mean[channel]) / std[channel];
+            }
+        }
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Scales {@code argb} ({@code srcWidth} x {@code srcHeight}) down to
+     * {@code dstWidth} x {@code dstHeight}, writing interleaved RGB bytes into
+     * {@code rgb} and, if {@code normalized} is not null, the three normalized
+     * planes into {@code normalized}.
+     */
+    public void process(int[] argb, int srcWidth, int srcHeight, int dstWidth, int dstHeight,
+                        byte[] rgb, float[] normalized) {
+        if (dstWidth <= 0 || dstHeight <= 0) {
+            throw new IllegalArgumentException("Empty target size " + dstWidth + "x" + dstHeight);
+        }
+        if (dstWidth > srcWidth || dstHeight > srcHeight) {
+            throw new IllegalArgumentException("Only downscaling is supported");
+        }
+        if (argb.length < srcWidth * srcHeight || rgb.length < dstWidth * dstHeight * 3
+                || (normalized != null && normalized.length < dstWidth * dstHeight * 3)) {
+            throw new IllegalArgumentException("Buffer too small");
+        }
+
+        if (srcWidth != this.srcWidth || srcHeight != this.srcHeight
+                || dstWidth != this.dstWidth || dstHeight != this.dstHeight) {
+            layOut(srcWidth, srcHeight, dstWidth, dstHeight);
+        }
+
+        this.argb = argb;
+        this.rgb = rgb;
+        this.normalized = normalized;
+        try {
+            pass.reinitialize();
+            pool.invoke(pass);
+        } finally {
+            this.argb = null;
+            this.rgb = null;
+            this.normalized = null;
+        }
+    }
+
+    /** Builds the column table and the bands for one source and target size. */
+    private void layOut(int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.dstWidth = dstWidth;
+        this.dstHeight = dstHeight;
+
+        if (columnStarts.length < dstWidth + 1) {
+            columnStarts = new int[dstWidth + 1];
+        }
+        for (int x = 0; x <= dstWidth; x++) {
+            columnStarts[x] = (int) ((long) x * srcWidth / dstWidth);
+        }
+
+        long bySize = Math.max(1, (long) srcWidth * srcHeight / MIN_TILE_SOURCE_PIXELS);
+        int count = (int) Math.min(Math.min(bySize, dstHeight), (long) pool.getParallelism() * BANDS_PER_THREAD);
+        bands = new Band[count];
+        for (int i = 0; i < count; i++) {
+            bands[i] = new Band((int) ((long) i * dstHeight / count), (int) ((long) (i + 1) * dstHeight / count));
+        }
+    }
+
+    private int sourceRow(int y) {
+        return (int) ((long) y * srcHeight / dstHeight);
+    }
+
+    /** Runs all bands of one {@link #process} call. */
+    private class Pass extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (Band band : bands) {
+                band.reinitialize();
+            }
+            invokeAll(bands);
+        }
+    }
+
+    private class Band extends RecursiveAction {
+        private final int fromRow;
+        private final int toRow;
+
+        Band(int fromRow, int toRow) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            for (int y = fromRow; y < toRow; y++) {
+                processRow(y);
+            }
+        }
+    }
+
+    private void processRow(int y) {
+        int[] argb = this.argb;
+        byte[] rgb = this.rgb;
+        float[] normalized = this.normalized;
+        int[] columns = columnStarts;
+        float[] red = normalizeTable[0];
+        float[] green = normalizeTable[1];
+        float[] blue = normalizeTable[2];
+        int plane = dstWidth * dstHeight;
+
+        int sy0 = sourceRow(y);
+        int sy1 = sourceRow(y + 1);
+        int rows = sy1 - sy0;
+        for (int x = 0; x < dstWidth; x++) {
+            int sx0 = columns[x];
+            int sx1 = columns[x + 1];
+
+            long r = 0;
+            long g = 0;
+            long b = 0;
+            for (int sy = sy0; sy < sy1; sy++) {
+                int row = sy * srcWidth;
+                for (int sx = sx0; sx < sx1; sx++) {
+                    int p = argb[row + sx];
+                    r += (p >> 16) & 0xff;
+                    g += (p >> 8) & 0xff;
+                    b += p & 0xff;
+                }
+            }
+            int count = rows * (sx1 - sx0);
+            int red8 = (int) ((r + count / 2) / count);
+            int green8 = (int) ((g + count / 2) / count);
+            int blue8 = (int) ((b + count / 2) / count);
+
+            int i = y * dstWidth + x;
+            rgb[i * 3] = (byte) red8;
+            rgb[i * 3 + 1] = (byte) green8;
+            rgb[i * 3 + 2] = (byte) blue8;
+            if (normalized != null) {
+                normalized[i] = red[red8];
+                normalized[plane + i] = green[green8];
+                normalized[2 * plane + i] = blue[blue8];
+            }
+        }
+    }
+}
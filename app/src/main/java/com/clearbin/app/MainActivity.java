@@ -2,12 +2,18 @@ package com.clearbin.app;
 
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Typeface;
 import android.media.AudioManager;
+import android.net.ConnectivityManager;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
+import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -22,20 +28,57 @@ import com.camerakit.CameraKitView;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MainActivity extends AppCompatActivity {
 
+    /** Long side of the decode used for the quality check and the preview placeholder. */
+    private static final int CHECK_IMAGE_SIZE = 512;
+    private static final String CAPTURE_PREFIX = "capture-";
+    /** Checks and saves captures one after another, in shutter order. */
+    private static final Executor CAPTURE_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
     private CameraKitView cameraView;
+    private ImageView previewPlaceholder;
     private ImageView flashView;
+    private long resumedAt;
+    /** Set once a shot arrives until it is rejected or this screen resumes after the result. */
+    private final AtomicBoolean captureInProgress = new AtomicBoolean();
+    /** Only touched on {@link #CAPTURE_EXECUTOR}, outlives the activity like the tasks do. */
+    private static boolean skipQualityCheck = false;
     private int flashMode = CameraKit.FLASH_OFF;
     private boolean doubleBackToExitPressedOnce = false;
 
+    private final Handler warmUpHandler = new Handler(Looper.getMainLooper());
+    private final Runnable warmUpTick = new Runnable() {
+        @Override
+        public void run() {
+            warmUpBackend();
+            warmUpHandler.postDelayed(this, BackendWarmer.MIN_INTERVAL_MILLIS);
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
         cameraView = (CameraKitView) findViewById(R.id.cameraView);
+        previewPlaceholder = (ImageView) findViewById(R.id.previewPlaceholder);
+
+        cameraView.setPreviewListener(new CameraKitView.PreviewListener() {
+            @Override
+            public void onStart() {
+                runOnUiThread(() -> onPreviewStarted());
+            }
+
+            @Override
+            public void onStop() {
+            }
+        });
 
         Typeface customFont = Typeface.createFromAsset(getAssets(),"fonts/Oswald-Regular.ttf");
 
@@ -51,14 +94,23 @@ public class MainActivity extends AppCompatActivity {
             return insets.consumeSystemWindowInsets();
         });
 
-        ((ImageView) findViewById(R.id.shutter)).setOnClickListener(view -> cameraView.captureImage((cameraKitView, capturedImage) -> {
-            // Play shutter audio
-            MediaActionSound mSound = new MediaActionSound();
-            mSound.playWithStreamVolume(MediaActionSound.SHUTTER_CLICK, (Context) MainActivity.this, AudioManager.STREAM_MUSIC, 0.5f);
-
-            // Go to Result activity with captured data
-            gotoResult(capturedImage);
-        }));
+        ((ImageView) findViewById(R.id.shutter)).setOnClickListener(view -> {
+            cameraView.captureImage((cameraKitView, capturedImage) -> {
+                // Drop shots that arrive while the previous one is still being checked or saved.
+                // Claimed here rather than on the tap, so a capture that never calls back
+                // cannot leave the shutter dead.
+                if (!captureInProgress.compareAndSet(false, true)) {
+                    return;
+                }
+
+                // Play shutter audio
+                MediaActionSound mSound = new MediaActionSound();
+                mSound.playWithStreamVolume(MediaActionSound.SHUTTER_CLICK, (Context) MainActivity.this, AudioManager.STREAM_MUSIC, 0.5f);
+
+                // Check the shot, then go to Result activity with captured data
+                checkCapture(capturedImage);
+            });
+        });
 
         flashView = (ImageView) findViewById(R.id.flash);
         flashView.setImageResource(R.drawable.flash_off);
@@ -81,9 +133,97 @@ public class MainActivity extends AppCompatActivity {
         cameraView.setFlash(flashMode);
     }
 
-    private String saveTempImage(byte[] capturedImage) {
+    /**
+     * The work below can outlive this activity (rotation mid-check), so toasts
+     * and navigation go through the application context, never {@code this}.
+     */
+    private void checkCapture(byte[] capturedImage) {
+        Context appContext = getApplicationContext();
+        AtomicBoolean captureInProgress = this.captureInProgress;
+
+        if (!BuildConfig.QUALITY_GATE) {
+            // Nothing to wait for: save and navigate right away, the placeholder decodes alongside
+            CAPTURE_EXECUTOR.execute(() -> gotoResult(appContext, capturedImage));
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> showPlaceholder(decodeForCheck(capturedImage)));
+            return;
+        }
+
+        CAPTURE_EXECUTOR.execute(() -> {
+            Bitmap bitmap = decodeForCheck(capturedImage);
+
+            if (bitmap != null) {
+                long startedAt = SystemClock.elapsedRealtimeNanos();
+                int[] pixels = new int[bitmap.getWidth() * bitmap.getHeight()];
+                bitmap.getPixels(pixels, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+                CaptureQuality quality = CaptureQuality.check(pixels, bitmap.getWidth(), bitmap.getHeight());
+                EventLog.log(EventLog.QUALITY_CHECK, quality.verdict, (long) quality.sharpness,
+                        (SystemClock.elapsedRealtimeNanos() - startedAt) / 1000);
+
+                if (!quality.isAcceptable()) {
+                    if (!skipQualityCheck) {
+                        // Ask for a retake, a second rejected shot in a row is sent anyway
+                        skipQualityCheck = true;
+                        MAIN_HANDLER.post(() -> Toast.makeText(appContext,
+                                quality.verdict == CaptureQuality.TOO_DARK ? R.string.retake_dark : R.string.retake_blurry,
+                                Toast.LENGTH_LONG).show());
+                        captureInProgress.set(false);
+                        return;
+                    }
+                    EventLog.log(EventLog.QUALITY_OVERRIDE, quality.verdict);
+                }
+                skipQualityCheck = false;
+            }
+
+            showPlaceholder(bitmap);
+            gotoResult(appContext, capturedImage);
+        });
+    }
+
+    /** Decodes the capture at about {@link #CHECK_IMAGE_SIZE} on the long side. */
+    private static Bitmap decodeForCheck(byte[] capturedImage) {
+        long startedAt = SystemClock.elapsedRealtimeNanos();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(capturedImage, 0, capturedImage.length, options);
+
+        options.inSampleSize = 1;
+        while (Math.max(options.outWidth, options.outHeight) / (options.inSampleSize * 2) >= CHECK_IMAGE_SIZE) {
+            options.inSampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(capturedImage, 0, capturedImage.length, options);
+        if (bitmap != null) {
+            EventLog.log(EventLog.CAPTURE_DECODE, (SystemClock.elapsedRealtimeNanos() - startedAt) / 1000,
+                    Math.max(bitmap.getWidth(), bitmap.getHeight()), options.inSampleSize);
+        }
+        return bitmap;
+    }
+
+    private void showPlaceholder(Bitmap bitmap) {
+        if (bitmap != null) {
+            // Keep the shot to cover the preview while the camera reopens
+            runOnUiThread(() -> previewPlaceholder.setImageBitmap(bitmap));
+        }
+    }
 
-        File savedPhoto = new File(getCacheDir(), "photo.jpg");
+    private void onPreviewStarted() {
+        // The preview surface shows its first frame on the next draw
+        cameraView.post(() -> {
+            EventLog.log(EventLog.CAMERA_FIRST_FRAME, SystemClock.elapsedRealtime() - resumedAt);
+            previewPlaceholder.setVisibility(View.GONE);
+        });
+    }
+
+    private static String saveTempImage(Context context, byte[] capturedImage) {
+
+        // A file per capture, so a result screen never reads a shot that is being overwritten
+        File savedPhoto = new File(context.getCacheDir(), CAPTURE_PREFIX + SystemClock.elapsedRealtimeNanos() + ".jpg");
+        File[] oldPhotos = context.getCacheDir().listFiles((dir, name) -> name.startsWith(CAPTURE_PREFIX));
+        if (oldPhotos != null) {
+            for (File oldPhoto : oldPhotos) {
+                oldPhoto.delete();
+            }
+        }
         try {
             FileOutputStream outputStream = new FileOutputStream(savedPhoto.getPath());
             outputStream.write(capturedImage);
@@ -91,18 +231,20 @@ public class MainActivity extends AppCompatActivity {
 
             return savedPhoto.getAbsolutePath();
         } catch (java.io.IOException e) {
-            e.printStackTrace();
+            EventLog.error(EventLog.SITE_SAVE_CAPTURE, e);
 
             return "";
         }
     }
 
-    private void gotoResult(byte[] capturedImage) {
-        String imagePath = saveTempImage(capturedImage);
+    private static void gotoResult(Context appContext, byte[] capturedImage) {
+        String imagePath = saveTempImage(appContext, capturedImage);
 
-        Intent intent = new Intent(MainActivity.this, ResultActivity.class);
+        // Started from the application context, it joins the app's existing task
+        Intent intent = new Intent(appContext, ResultActivity.class);
         intent.putExtra(ResultActivity.IMAGE_PATH_PARAM, imagePath);
-        startActivity(intent);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        MAIN_HANDLER.post(() -> appContext.startActivity(intent));
     }
 
     @Override
@@ -119,6 +261,7 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onPause() {
+        warmUpHandler.removeCallbacks(warmUpTick);
         cameraView.onPause();
         super.onPause();
     }
@@ -126,7 +269,26 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        resumedAt = SystemClock.elapsedRealtime();
+        captureInProgress.set(false);
+        if (previewPlaceholder.getDrawable() != null) {
+            previewPlaceholder.setVisibility(View.VISIBLE);
+        }
         cameraView.onResume();
+        warmUpTick.run();
+    }
+
+    /**
+     * Pings the detection backend while the user frames a shot, so the upload
+     * finds an open connection and an awake server. Only runs while this
+     * screen is resumed, and not on metered networks.
+     */
+    private void warmUpBackend() {
+        ConnectivityManager connectivity = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null || connectivity.isActiveNetworkMetered()) {
+            return;
+        }
+        DetectionClient.getDefault().warmer().warmUp();
     }
 
     @Override
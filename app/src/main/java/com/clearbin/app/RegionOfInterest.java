@@ -0,0 +1,160 @@
+package com.clearbin.app;
+
+/**
+ * Finds the part of a capture that holds the dominant object so only that
+ * region has to be uploaded.
+ *
+ * The heuristic works on a small ARGB thumbnail: it measures edge energy per
+ * pixel, drops everything below the background's noise level, keeps the band
+ * of rows and columns that holds most of what is left and pads the result.
+ * Plain or grainy backgrounds contribute next to nothing, so the band closes
+ * in on the object. Bounds are relative to the thumbnail and can be mapped to
+ * the full image with {@link #scale(int, int, int, int)}.
+ */
+public class RegionOfInterest {
+
+    /** Share of the edge energy kept inside the region, split evenly between both ends. */
+    private static final float ENERGY_KEPT = 0.95f;
+    /** Edges weaker than this multiple of the median edge are treated as background grain. */
+    private static final int NOISE_FLOOR_FACTOR = 2;
+    /** Padding added on every side, relative to the region size. */
+    private static final float PADDING = 0.15f;
+    /** Regions covering more than this share of the frame are not worth cropping. */
+    private static final float MAX_AREA_RATIO = 0.85f;
+    /** Average per-pixel edge energy below which the frame is treated as featureless. */
+    private static final float MIN_MEAN_ENERGY = 2f;
+
+    public final int left;
+    public final int top;
+    public final int right;
+    public final int bottom;
+
+    public RegionOfInterest(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    public boolean isFullFrame(int width, int height) {
+        return left == 0 && top == 0 && right == width && bottom == height;
+    }
+
+    /**
+     * Maps the region from a {@code fromWidth} x {@code fromHeight} image onto a
+     * {@code toWidth} x {@code toHeight} one, rounding outwards.
+     */
+    public RegionOfInterest scale(int fromWidth, int fromHeight, int toWidth, int toHeight) {
+        return new RegionOfInterest(
+                clamp((int) Math.floor((double) left * toWidth / fromWidth), 0, toWidth),
+                clamp((int) Math.floor((double) top * toHeight / fromHeight), 0, toHeight),
+                clamp((int) Math.ceil((double) right * toWidth / fromWidth), 0, toWidth),
+                clamp((int) Math.ceil((double) bottom * toHeight / fromHeight), 0, toHeight));
+    }
+
+    /**
+     * Returns the padded region holding the dominant object in the given ARGB
+     * pixels, or the full frame when no clear object stands out.
+     */
+    public static RegionOfInterest find(int[] pixels, int width, int height) {
+        RegionOfInterest full = new RegionOfInterest(0, 0, width, height);
+        if (width < 3 || height < 3) {
+            return full;
+        }
+
+        int[] luma = new int[width * height];
+        for (int i = 0; i < luma.length; i++) {
+            int p = pixels[i];
+            luma[i] = (((p >> 16) & 0xff) * 77 + ((p >> 8) & 0xff) * 150 + (p & 0xff) * 29) >> 8;
+        }
+
+        // Edge energy per pixel, with a histogram to find the background's noise level.
+        int[] energy = new int[width * height];
+        int[] histogram = new int[2 * 255 + 1];
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int i = y * width + x;
+                int e = Math.abs(luma[i + 1] - luma[i - 1]) + Math.abs(luma[i + width] - luma[i - width]);
+                energy[i] = e;
+                histogram[e]++;
+            }
+        }
+        int floor = NOISE_FLOOR_FACTOR * median(histogram, (width - 2) * (height - 2));
+
+        long[] columns = new long[width];
+        long[] rows = new long[height];
+        long total = 0;
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int e = energy[y * width + x] - floor;
+                if (e > 0) {
+                    columns[x] += e;
+                    rows[y] += e;
+                    total += e;
+                }
+            }
+        }
+
+        if (total < MIN_MEAN_ENERGY * (width - 2) * (height - 2)) {
+            return full;
+        }
+
+        int[] xs = band(columns, total);
+        int[] ys = band(rows, total);
+
+        int padX = Math.round((xs[1] - xs[0]) * PADDING);
+        int padY = Math.round((ys[1] - ys[0]) * PADDING);
+        RegionOfInterest region = new RegionOfInterest(
+                clamp(xs[0] - padX, 0, width),
+                clamp(ys[0] - padY, 0, height),
+                clamp(xs[1] + padX, 0, width),
+                clamp(ys[1] + padY, 0, height));
+
+        if ((float) region.width() * region.height() > MAX_AREA_RATIO * width * height) {
+            return full;
+        }
+        return region;
+    }
+
+    /** Returns [start, end) of the central band holding {@link #ENERGY_KEPT} of the energy. */
+    private static int[] band(long[] energy, long total) {
+        long cut = (long) (total * (1f - ENERGY_KEPT) / 2f);
+
+        int start = 0;
+        long sum = 0;
+        while (start < energy.length - 1 && sum + energy[start] <= cut) {
+            sum += energy[start++];
+        }
+
+        int end = energy.length;
+        sum = 0;
+        while (end > start + 1 && sum + energy[end - 1] <= cut) {
+            sum += energy[--end];
+        }
+
+        return new int[]{start, end};
+    }
+
+    private static int median(int[] histogram, int count) {
+        int seen = 0;
+        for (int value = 0; value < histogram.length; value++) {
+            seen += histogram[value];
+            if (seen * 2 >= count) {
+                return value;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
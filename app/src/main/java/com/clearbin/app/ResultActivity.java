@@ -1,64 +1,104 @@
 package com.clearbin.app;
 
-import android.annotation.SuppressLint;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.text.TextUtils;
-import android.util.Base64;
-import android.util.Log;
+import android.util.DisplayMetrics;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.kaopiz.kprogresshud.KProgressHUD;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.URL;
 import java.util.Random;
-
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import java.util.concurrent.Executor;
 
 public class ResultActivity extends AppCompatActivity {
 
     public static final String IMAGE_PATH_PARAM = "IMAGE_PATH_PARAM";
 
-    public static final String API_DETECT_URL = "https://clearbin-bk.herokuapp.com/detect";
-    public static final String NO_DETECTED_MSG = "No object detected.";
+    private static final int ROI_THUMBNAIL_SIZE = 96;
+    /** Subsampling for the first paint when the capture has no EXIF thumbnail. */
+    private static final int PREVIEW_SAMPLE_SIZE = 16;
+
+
+    private static final String RESULT_SHOWN_STATE = "RESULT_SHOWN_STATE";
+
+    private ScanSession<Bitmap> session;
+    private KProgressHUD hud;
+    private boolean resultShown;
+
+    private final ScanSession.Listener<Bitmap> scanListener = new ScanSession.Listener<Bitmap>() {
+        @Override
+        public void onPreview(Bitmap preview) {
+            ((ImageView) findViewById(R.id.imageView)).setImageBitmap(preview);
+        }
 
+        @Override
+        public void onImage(Bitmap image) {
+            ((ImageView) findViewById(R.id.imageView)).setImageBitmap(image);
+        }
+
+        @Override
+        public void onResult(DetectionResult result) {
+            dismissHud();
+            if (resultShown) {
+                return;
+            }
+            resultShown = true;
+
+            if (!result.isDetected()) {
+                NoResultFragment fragment = NoResultFragment.newInstance();
+                fragment.show(getSupportFragmentManager(), "no_result_dialog_fragment");
+            } else {
+                ResultFragment fragment = ResultFragment.newInstance(result.clusterName, true);
+                fragment.show(getSupportFragmentManager(), "result_dialog_fragment");
+            }
+        }
+
+        @Override
+        public void onError(Exception error) {
+            dismissHud();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_result);
 
+        if (savedInstanceState != null) {
+            resultShown = savedInstanceState.getBoolean(RESULT_SHOWN_STATE);
+        }
+
         String imagePath = getIntent().getStringExtra(IMAGE_PATH_PARAM);
         if (!TextUtils.isEmpty(imagePath)) {
-            Bitmap bitmap = BitmapFactory.decodeFile(imagePath);
-
-            ImageView imageView = (ImageView) findViewById(R.id.imageView);
-            imageView.setImageBitmap(bitmap);
+            session = new ViewModelProvider(this, new ViewModelProvider.NewInstanceFactory())
+                    .get(ScanViewModel.class).session;
 
-            KProgressHUD hud = KProgressHUD.create(ResultActivity.this)
-                    .setStyle(KProgressHUD.Style.SPIN_INDETERMINATE)
-                    .setLabel("Please wait...")
-                    .setCancellable(true)
-                    .setAnimationSpeed(1)
-                    .setDimAmount(0.3f)
-                    .show();
+            if (!session.isFinished()) {
+                hud = KProgressHUD.create(ResultActivity.this)
+                        .setStyle(KProgressHUD.Style.SPIN_INDETERMINATE)
+                        .setLabel("Please wait...")
+                        .setCancellable(true)
+                        .setAnimationSpeed(1)
+                        .setDimAmount(0.3f)
+                        .show();
+            }
 
-            new DetectImageTask().execute(bitmap, hud);
+            DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
+            session.startOnce(AsyncTask.THREAD_POOL_EXECUTOR, new ScanJob(session, AsyncTask.THREAD_POOL_EXECUTOR,
+                    imagePath, displayMetrics.widthPixels, displayMetrics.heightPixels));
         }
 
 //        runOnUiThread(new Runnable() {
@@ -86,16 +126,63 @@ public class ResultActivity extends AppCompatActivity {
 //        });
     }
 
-    private String encode2base64(Bitmap bitmap) {
-        String encoded = "data:image/jpeg;base64,";
+    private static int sampleSizeFor(int width, int height, int targetWidth, int targetHeight) {
+        int longSide = Math.max(width, height);
+        int shortSide = Math.min(width, height);
+        int targetLong = Math.max(targetWidth, targetHeight);
+        int targetShort = Math.min(targetWidth, targetHeight);
+
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= targetLong && shortSide / (sampleSize * 2) >= targetShort) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static Bitmap cropToObject(Bitmap bitmap) {
+        float scale = (float) ROI_THUMBNAIL_SIZE / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        int thumbWidth = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int thumbHeight = Math.max(1, Math.round(bitmap.getHeight() * scale));
+
+        Bitmap thumbnail = Bitmap.createScaledBitmap(bitmap, thumbWidth, thumbHeight, true);
+        int[] pixels = new int[thumbWidth * thumbHeight];
+        thumbnail.getPixels(pixels, 0, thumbWidth, 0, 0, thumbWidth, thumbHeight);
+        if (thumbnail != bitmap) {
+            thumbnail.recycle();
+        }
+
+        RegionOfInterest region = RegionOfInterest.find(pixels, thumbWidth, thumbHeight)
+                .scale(thumbWidth, thumbHeight, bitmap.getWidth(), bitmap.getHeight());
+        if (region.isFullFrame(bitmap.getWidth(), bitmap.getHeight())) {
+            return bitmap;
+        }
+
+        EventLog.log(EventLog.ROI_CROP, region.width(), region.height(), (long) bitmap.getWidth() * bitmap.getHeight());
+        return Bitmap.createBitmap(bitmap, region.left, region.top, region.width(), region.height());
+    }
+
+    /** Encodes the full-resolution capture at {@code imagePath}, cropped to the object, for upload. */
+    private static byte[] encodeUploadImage(String imagePath) {
+        Bitmap bitmap = BitmapFactory.decodeFile(imagePath);
+        if (bitmap == null) {
+            return encodeImage(null);
+        }
+
+        Bitmap cropped = cropToObject(bitmap);
+        byte[] image = encodeImage(cropped);
+        if (cropped != bitmap) {
+            cropped.recycle();
+        }
+        bitmap.recycle();
+        return image;
+    }
+
+    private static byte[] encodeImage(Bitmap bitmap) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         if (bitmap != null) {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
             bitmap.compress(Bitmap.CompressFormat.PNG, 100, byteArrayOutputStream);
-            byte[] byteArray = byteArrayOutputStream.toByteArray();
-
-            encoded += Base64.encodeToString(byteArray, Base64.DEFAULT);
         }
-        return encoded;
+        return byteArrayOutputStream.toByteArray();
     }
 
     @Override
@@ -105,59 +192,127 @@ public class ResultActivity extends AppCompatActivity {
         this.finish();
     }
 
-    @SuppressLint("MissingSuperCall")
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        // Attached only while started, so a result arriving in the background
+        // is shown on return instead of committing a dialog after the state is saved.
+        if (session != null) {
+            session.attach(scanListener);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        if (session != null) {
+            session.detach(scanListener);
+        }
+
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        dismissHud();
+
+        super.onDestroy();
+    }
+
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
-        //No call for super(). Bug on API Level > 11
+        super.onSaveInstanceState(outState);
+
+        outState.putBoolean(RESULT_SHOWN_STATE, resultShown);
     }
 
+    private void dismissHud() {
+        if (hud != null) {
+            hud.dismiss();
+            hud = null;
+        }
+    }
 
-    private class DetectImageTask extends AsyncTask<Object,  Integer, Long> {
-        @Override
-        protected Long doInBackground(Object... objects) {
-            Bitmap bitmap = (Bitmap) objects[0];
 
-            KProgressHUD hud = (KProgressHUD) objects[1];
+    /**
+     * Paints the EXIF thumbnail (or a coarse decode) right away, then hands the
+     * display-sized decode to another worker and goes straight on to detection,
+     * so the upload does not wait behind an image only the screen needs.
+     * Detection gets its own full-resolution decode, so what the backend sees
+     * does not depend on the screen. Reports only to the
+     * {@link ScanSession}, never to an activity, so it keeps going across
+     * configuration changes and runs once per scan.
+     */
+    private static class ScanJob implements Runnable {
+        private final ScanSession<Bitmap> session;
+        private final Executor displayWorker;
+        private final String imagePath;
+        private final int displayWidth;
+        private final int displayHeight;
+        private final long startedAt = SystemClock.elapsedRealtime();
+
+        ScanJob(ScanSession<Bitmap> session, Executor displayWorker, String imagePath,
+                int displayWidth, int displayHeight) {
+            this.session = session;
+            this.displayWorker = displayWorker;
+            this.imagePath = imagePath;
+            this.displayWidth = displayWidth;
+            this.displayHeight = displayHeight;
+        }
 
-            OkHttpClient client = new OkHttpClient();
+        @Override
+        public void run() {
+            paintPreview();
+            displayWorker.execute(this::decodeDisplayImage);
+            detect();
+        }
+
+        private void paintPreview() {
+            Bitmap preview = null;
             try {
-                JSONObject reqJsonObject = new JSONObject();
-                reqJsonObject.put("imgb64", encode2base64(bitmap));
-
-                RequestBody requestJsonBody = RequestBody.create(
-                        reqJsonObject.toString(),
-                        MediaType.parse("application/json")
-                );
-                Request postRequest = new Request.Builder()
-                        .url(API_DETECT_URL)
-                        .post(requestJsonBody)
-                        .build();
-
-                Response response = client.newCall(postRequest).execute();
-
-                JSONObject resJsonObject = new JSONObject(response.body().string());
-                Log.d("MESSAGE", resJsonObject.getString("message"));
-                Log.d("PRED_TIME", resJsonObject.getString("pred_time"));
-                Log.d("CONFIDENCE", resJsonObject.getString("confidence"));
-                Log.d("CLUSTER", resJsonObject.getString("cluster"));
-                Log.d("CLUSTER_NAME", resJsonObject.getString("cluster_name"));
-                Log.d("MATERIALS", resJsonObject.getString("materials"));
-
-                hud.dismiss();
-
-                if (NO_DETECTED_MSG.equals(resJsonObject.getString("message"))) {
-                    NoResultFragment fragment = NoResultFragment.newInstance();
-                    fragment.show(getSupportFragmentManager(), "no_result_dialog_fragment");
-                } else {
-                    ResultFragment fragment = ResultFragment.newInstance(resJsonObject.getString("cluster_name"), true);
-                    fragment.show(getSupportFragmentManager(), "result_dialog_fragment");
+                byte[] thumbnail = ExifThumbnail.read(imagePath);
+                if (thumbnail != null) {
+                    preview = BitmapFactory.decodeByteArray(thumbnail, 0, thumbnail.length);
                 }
-            } catch (IOException | JSONException e) {
-                e.printStackTrace();
-                hud.dismiss();
+            } catch (IOException e) {
+                EventLog.error(EventLog.SITE_EXIF_THUMBNAIL, e);
+            }
+            if (preview == null) {
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inSampleSize = PREVIEW_SAMPLE_SIZE;
+                preview = BitmapFactory.decodeFile(imagePath, options);
+            }
+            if (preview != null) {
+                session.publishPreview(preview);
+                EventLog.log(EventLog.RESULT_FIRST_PAINT, SystemClock.elapsedRealtime() - startedAt);
             }
+        }
+
+        private void decodeDisplayImage() {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(imagePath, options);
+
+            options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight, displayWidth, displayHeight);
+            options.inJustDecodeBounds = false;
+            Bitmap bitmap = BitmapFactory.decodeFile(imagePath, options);
+            if (bitmap != null) {
+                session.publishImage(bitmap);
+            }
+            EventLog.log(EventLog.RESULT_DISPLAY_IMAGE, SystemClock.elapsedRealtime() - startedAt);
+        }
 
-            return null;
+        private void detect() {
+            try {
+                byte[] image = encodeUploadImage(imagePath);
+                DetectionResult result = DetectionClient.getDefault().detect(image);
+
+                EventLog.detection(result);
+                session.publishResult(result);
+            } catch (IOException | JSONException e) {
+                EventLog.error(EventLog.SITE_DETECT, e);
+                session.publishError(e);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.clearbin.app;
+
+import java.util.concurrent.Executor;
+
+/**
+ * State of one scan that outlives the screen showing it.
+ *
+ * The background job publishes the preview, the display image and the
+ * detection result here instead of into an activity. A screen attaches a
+ * {@link Listener} when it is started, gets the current state replayed at
+ * once, and detaches when it is stopped, so nothing reaches a screen that is
+ * not visible. Whatever arrives in between is kept and replayed on the next
+ * attach, whether by the same screen or a recreated one. The job itself is
+ * started at most once.
+ *
+ * All state changes and callbacks happen on the {@code callbacks} executor,
+ * which is also the thread {@link #attach}, {@link #detach} and
+ * {@link #startOnce} must be called on.
+ *
+ * @param <I> image type, {@code Bitmap} in the app
+ */
+public class ScanSession<I> {
+
+    public interface Listener<I> {
+        void onPreview(I preview);
+
+        void onImage(I image);
+
+        void onResult(DetectionResult result);
+
+        void onError(Exception error);
+    }
+
+    private final Executor callbacks;
+
+    private Listener<I> listener;
+    private boolean started;
+    private boolean cancelled;
+    private I preview;
+    private I image;
+    private DetectionResult result;
+    private Exception error;
+
+    public ScanSession(Executor callbacks) {
+        this.callbacks = callbacks;
+    }
+
+    /** Runs {@code job} on {@code worker} unless this session already ran it. */
+    public void startOnce(Executor worker, Runnable job) {
+        if (started) {
+            return;
+        }
+        started = true;
+        worker.execute(job);
+    }
+
+    public void attach(Listener<I> listener) {
+        this.listener = listener;
+
+        if (image != null) {
+            listener.onImage(image);
+        } else if (preview != null) {
+            listener.onPreview(preview);
+        }
+        if (result != null) {
+            listener.onResult(result);
+        } else if (error != null) {
+            listener.onError(error);
+        }
+    }
+
+    public void detach(Listener<I> listener) {
+        if (this.listener == listener) {
+            this.listener = null;
+        }
+    }
+
+    public boolean isFinished() {
+        return result != null || error != null;
+    }
+
+    /** Drops anything the job publishes from now on. */
+    public void cancel() {
+        callbacks.execute(() -> {
+            cancelled = true;
+            listener = null;
+        });
+    }
+
+    public void publishPreview(I preview) {
+        callbacks.execute(() -> {
+            if (cancelled || image != null) {
+                return;
+            }
+            this.preview = preview;
+            if (listener != null) {
+                listener.onPreview(preview);
+            }
+        });
+    }
+
+    public void publishImage(I image) {
+        callbacks.execute(() -> {
+            if (cancelled) {
+                return;
+            }
+            this.image = image;
+            this.preview = null;
+            if (listener != null) {
+                listener.onImage(image);
+            }
+        });
+    }
+
+    public void publishResult(DetectionResult result) {
+        callbacks.execute(() -> {
+            if (cancelled) {
+                return;
+            }
+            this.result = result;
+            if (listener != null) {
+                listener.onResult(result);
+            }
+        });
+    }
+
+    public void publishError(Exception error) {
+        callbacks.execute(() -> {
+            if (cancelled) {
+                return;
+            }
+            this.error = error;
+            if (listener != null) {
+                listener.onError(error);
+            }
+        });
+    }
+}
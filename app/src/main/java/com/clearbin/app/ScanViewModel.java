@@ -0,0 +1,21 @@
+package com.clearbin.app;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.ViewModel;
+
+/**
+ * Keeps the {@link ScanSession} of {@link ResultActivity} across
+ * configuration changes.
+ */
+public class ScanViewModel extends ViewModel {
+
+    final ScanSession<Bitmap> session = new ScanSession<>(new Handler(Looper.getMainLooper())::post);
+
+    @Override
+    protected void onCleared() {
+        session.cancel();
+    }
+}
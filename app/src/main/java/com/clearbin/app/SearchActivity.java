@@ -1,14 +1,31 @@
 package com.clearbin.app;
 
 import android.graphics.Typeface;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.ArrayAdapter;
 import android.widget.EditText;
+import android.widget.ListView;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 public class SearchActivity extends AppCompatActivity {
 
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+    private static final int SEARCH_MAX_RESULTS = 20;
+    private static final int SEARCH_CACHE_SIZE = 32;
+
+    private TypeaheadEngine typeahead;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -19,6 +36,68 @@ public class SearchActivity extends AppCompatActivity {
         EditText editSearch = (EditText) findViewById(R.id.editItemName);
         editSearch.setTypeface(customFont);
         editSearch.setBackgroundResource(R.drawable.button_border);
+
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1);
+        ((ListView) findViewById(R.id.searchResults)).setAdapter(adapter);
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        typeahead = new TypeaheadEngine(
+                localBackend(getResources().getStringArray(R.array.search_items)),
+                new TypeaheadEngine.Scheduler() {
+                    @Override
+                    public void postDelayed(Runnable task, long delayMillis) {
+                        handler.postDelayed(task, delayMillis);
+                    }
+
+                    @Override
+                    public void removeCallbacks(Runnable task) {
+                        handler.removeCallbacks(task);
+                    }
+                },
+                AsyncTask.THREAD_POOL_EXECUTOR,
+                handler::post,
+                (query, results) -> {
+                    adapter.clear();
+                    adapter.addAll(results);
+                },
+                SEARCH_DEBOUNCE_MS, SEARCH_MAX_RESULTS, SEARCH_CACHE_SIZE);
+
+        editSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                typeahead.onQueryChanged(s.toString());
+            }
+        });
+    }
+
+    // The backend has no search endpoint yet, so lookups run over the bundled item list.
+    private static TypeaheadEngine.Backend localBackend(String[] items) {
+        return (query, maxResults) -> {
+            List<String> results = new ArrayList<>();
+            for (String item : items) {
+                if (results.size() == maxResults) {
+                    break;
+                }
+                if (item.toLowerCase(Locale.ROOT).contains(query)) {
+                    results.add(item);
+                }
+            }
+            return results;
+        };
+    }
+
+    @Override
+    protected void onDestroy() {
+        typeahead.cancel();
+        super.onDestroy();
     }
 
     @Override
@@ -27,4 +106,4 @@ public class SearchActivity extends AppCompatActivity {
 
         this.finish();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package com.clearbin.app;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Detects when a looper-style thread stops processing work.
+ *
+ * A heartbeat is posted to the watched thread every {@code thresholdMillis}.
+ * If it has not run by the next check the thread is stalled, and its stack is
+ * sampled every {@code sampleMillis} until the heartbeat gets through. The
+ * stall is then logged with its duration and the most frequently sampled
+ * stack, which is where the thread spent most of the stall.
+ *
+ * While {@link #pause() paused} no heartbeats are posted, so an idle
+ * process is not woken up just to prove it is idle.
+ */
+public class StallDetector implements Runnable {
+
+    private static final int MAX_FRAMES = 12;
+
+    private final Executor watchedExecutor;
+    private final Thread watchedThread;
+    private final long thresholdMillis;
+    private final long sampleMillis;
+    private final WatchdogLog log;
+
+    private volatile long lastBeat;
+    private volatile boolean running = true;
+    /** Guarded by {@code this}. */
+    private boolean paused;
+
+    public StallDetector(Executor watchedExecutor, Thread watchedThread,
+                         long thresholdMillis, long sampleMillis, WatchdogLog log) {
+        this.watchedExecutor = watchedExecutor;
+        this.watchedThread = watchedThread;
+        this.thresholdMillis = thresholdMillis;
+        this.sampleMillis = sampleMillis;
+        this.log = log;
+    }
+
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    public void stop() {
+        running = false;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                awaitResumed();
+                if (!running) {
+                    break;
+                }
+                long posted = System.currentTimeMillis();
+                watchedExecutor.execute(() -> lastBeat = posted);
+                Thread.sleep(thresholdMillis);
+
+                if (lastBeat != posted) {
+                    recordStall(posted);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void awaitResumed() throws InterruptedException {
+        while (paused && running) {
+            wait();
+        }
+    }
+
+    private void recordStall(long posted) throws InterruptedException {
+        Map<String, Integer> samples = new HashMap<>();
+        String worst = null;
+        int worstCount = 0;
+
+        while (running && lastBeat != posted) {
+            String stack = format(watchedThread.getStackTrace());
+            Integer count = samples.get(stack);
+            count = count == null ? 1 : count + 1;
+            samples.put(stack, count);
+            if (count > worstCount) {
+                worst = stack;
+                worstCount = count;
+            }
+            Thread.sleep(sampleMillis);
+        }
+
+        long duration = System.currentTimeMillis() - posted;
+        log.add(posted, "STALL", watchedThread.getName() + " blocked " + duration + "ms, "
+                + worstCount + " of " + totalOf(samples) + " samples in:\n" + worst);
+    }
+
+    private static int totalOf(Map<String, Integer> samples) {
+        int total = 0;
+        for (int count : samples.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static String format(StackTraceElement[] stack) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < stack.length && i < MAX_FRAMES; i++) {
+            builder.append("    at ").append(stack[i]).append('\n');
+        }
+        return builder.toString();
+    }
+}
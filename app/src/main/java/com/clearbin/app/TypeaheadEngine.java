@@ -0,0 +1,199 @@
+package com.clearbin.app;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Turns keystrokes into as few backend lookups as possible.
+ *
+ * Input is debounced, a new query cancels the lookup of the one it replaces,
+ * and results are kept in a small LRU cache. A query that extends a cached
+ * one is answered locally when the cached result was complete (shorter than
+ * {@code maxResults}), since the backend matches case-insensitive substrings
+ * and a longer query can only narrow the result.
+ *
+ * All methods must be called on the thread behind {@code callbacks}, which is
+ * also where the scheduler runs and results are delivered.
+ */
+public class TypeaheadEngine {
+
+    public interface Backend {
+        /** Returns at most {@code maxResults} items containing {@code query}. */
+        List<String> search(String query, int maxResults) throws IOException;
+    }
+
+    public interface Scheduler {
+        void postDelayed(Runnable task, long delayMillis);
+
+        void removeCallbacks(Runnable task);
+    }
+
+    public interface Listener {
+        void onResults(String query, List<String> results);
+    }
+
+    private final Backend backend;
+    private final Scheduler scheduler;
+    private final Executor worker;
+    private final Executor callbacks;
+    private final Listener listener;
+    private final long debounceMillis;
+    private final int maxResults;
+    private final Map<String, List<String>> cache;
+
+    private final Runnable fire = this::startLookup;
+    private String pendingQuery;
+    private Lookup inFlight;
+
+    public TypeaheadEngine(Backend backend, Scheduler scheduler, Executor worker, Executor callbacks,
+                           Listener listener, long debounceMillis, int maxResults, final int cacheSize) {
+        this.backend = backend;
+        this.scheduler = scheduler;
+        this.worker = worker;
+        this.callbacks = callbacks;
+        this.listener = listener;
+        this.debounceMillis = debounceMillis;
+        this.maxResults = maxResults;
+        this.cache = new LinkedHashMap<String, List<String>>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public void onQueryChanged(String text) {
+        String query = text.trim().toLowerCase(Locale.ROOT);
+
+        scheduler.removeCallbacks(fire);
+        cancelInFlight();
+        pendingQuery = null;
+
+        if (query.isEmpty()) {
+            listener.onResults(query, Collections.<String>emptyList());
+            return;
+        }
+
+        List<String> cached = fromCache(query);
+        if (cached != null) {
+            listener.onResults(query, cached);
+            return;
+        }
+
+        pendingQuery = query;
+        scheduler.postDelayed(fire, debounceMillis);
+    }
+
+    /** Drops pending and in-flight work, e.g. when the screen goes away. */
+    public void cancel() {
+        scheduler.removeCallbacks(fire);
+        cancelInFlight();
+        pendingQuery = null;
+    }
+
+    private List<String> fromCache(String query) {
+        List<String> exact = cache.get(query);
+        if (exact != null) {
+            return exact;
+        }
+
+        for (int length = query.length() - 1; length > 0; length--) {
+            List<String> prefixResults = cache.get(query.substring(0, length));
+            if (prefixResults != null && prefixResults.size() < maxResults) {
+                List<String> refined = new ArrayList<>();
+                for (String item : prefixResults) {
+                    if (item.toLowerCase(Locale.ROOT).contains(query)) {
+                        refined.add(item);
+                    }
+                }
+                refined = Collections.unmodifiableList(refined);
+                cache.put(query, refined);
+                return refined;
+            }
+        }
+        return null;
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    private void startLookup() {
+        if (pendingQuery == null) {
+            return;
+        }
+        inFlight = new Lookup(pendingQuery);
+        pendingQuery = null;
+        worker.execute(inFlight);
+    }
+
+    private void onLookupDone(Lookup lookup, List<String> results) {
+        if (results == null) {
+            if (lookup == inFlight) {
+                inFlight = null;
+            }
+            return;
+        }
+
+        // Results of a superseded lookup are still worth caching.
+        results = Collections.unmodifiableList(new ArrayList<>(results));
+        cache.put(lookup.query, results);
+
+        if (lookup == inFlight) {
+            inFlight = null;
+            listener.onResults(lookup.query, results);
+        }
+    }
+
+    private class Lookup implements Runnable {
+        final String query;
+        private boolean cancelled;
+        private Thread thread;
+
+        Lookup(String query) {
+            this.query = query;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
+
+            List<String> results;
+            try {
+                results = backend.search(query, maxResults);
+            } catch (IOException e) {
+                results = null;
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    // Clear an interrupt from cancel() so it does not leak into the next task.
+                    Thread.interrupted();
+                }
+            }
+
+            final List<String> delivered = results;
+            callbacks.execute(() -> onLookupDone(this, delivered));
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+}
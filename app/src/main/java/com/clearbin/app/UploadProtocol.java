@@ -0,0 +1,15 @@
+package com.clearbin.app;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+
+/**
+ * How an encoded capture is sent to the detection endpoint.
+ */
+public interface UploadProtocol {
+
+    DetectionResult detect(Call.Factory http, String detectUrl, byte[] image) throws IOException, JSONException;
+}
@@ -0,0 +1,183 @@
+package com.clearbin.app;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Main-thread health checks for debug and canary builds.
+ *
+ * Installs StrictMode disk and network policies, watches the main looper for
+ * stalls while any activity is started and tracks frame durations of every
+ * resumed activity. Findings go to
+ * a {@link WatchdogLog} which {@link #export()} writes to
+ * {@code Android/data/com.clearbin.app/files/watchdog.log}.
+ */
+public class Watchdog implements Application.ActivityLifecycleCallbacks {
+
+    private static final String TAG = "Watchdog";
+
+    private static final int LOG_CAPACITY = 500;
+    private static final long STALL_THRESHOLD_MS = 200;
+    private static final long STALL_SAMPLE_MS = 20;
+
+    private static Watchdog sInstance;
+
+    private final Application application;
+    private final WatchdogLog log = new WatchdogLog(LOG_CAPACITY);
+    private final Handler handler;
+
+    private StallDetector stallDetector;
+    private FrameTracker frameTracker;
+    /** Main thread only. */
+    private int startedActivities;
+
+    private Watchdog(Application application) {
+        this.application = application;
+
+        HandlerThread thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized void install(Application application) {
+        if (sInstance != null) {
+            return;
+        }
+        sInstance = new Watchdog(application);
+        sInstance.start();
+    }
+
+    /** Writes the collected findings to external storage off the main thread. */
+    public static void export() {
+        Watchdog watchdog = sInstance;
+        if (watchdog != null) {
+            watchdog.handler.post(watchdog::writeLog);
+        }
+    }
+
+    private void start() {
+        StrictMode.ThreadPolicy.Builder threadPolicy = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .detectCustomSlowCalls();
+        StrictMode.VmPolicy.Builder vmPolicy = new StrictMode.VmPolicy.Builder()
+                .detectLeakedClosableObjects()
+                .detectActivityLeaks();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            threadPolicy.penaltyListener(handler::post, this::onViolation);
+            vmPolicy.penaltyListener(handler::post, this::onViolation);
+        } else {
+            threadPolicy.penaltyLog();
+            vmPolicy.penaltyLog();
+        }
+        StrictMode.setThreadPolicy(threadPolicy.build());
+        StrictMode.setVmPolicy(vmPolicy.build());
+
+        Looper mainLooper = Looper.getMainLooper();
+        Handler mainHandler = new Handler(mainLooper);
+        // Runs from process start so startup is covered, then follows the started activities
+        stallDetector = new StallDetector(mainHandler::post, mainLooper.getThread(),
+                STALL_THRESHOLD_MS, STALL_SAMPLE_MS, log);
+        Thread stallThread = new Thread(stallDetector, TAG + "-stall");
+        stallThread.setDaemon(true);
+        stallThread.start();
+
+        application.registerActivityLifecycleCallbacks(this);
+    }
+
+    private void onViolation(Violation violation) {
+        StringWriter stack = new StringWriter();
+        violation.printStackTrace(new PrintWriter(stack));
+        log.add(System.currentTimeMillis(), "STRICTMODE", stack.toString());
+    }
+
+    private void writeLog() {
+        File file = new File(application.getExternalFilesDir(null), "watchdog.log");
+        try (Writer writer = new FileWriter(file)) {
+            log.writeTo(writer);
+            Log.d(TAG, "Exported to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            Log.d(TAG, "Export failed", e);
+        }
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+        frameTracker = new FrameTracker();
+        Choreographer.getInstance().postFrameCallback(frameTracker);
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+        if (frameTracker != null) {
+            frameTracker.active = false;
+            Choreographer.getInstance().removeFrameCallback(frameTracker);
+            log.add(System.currentTimeMillis(), "FRAMES",
+                    activity.getClass().getSimpleName() + " " + frameTracker.stats.summary());
+            frameTracker = null;
+        }
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+        if (startedActivities++ == 0) {
+            stallDetector.resume();
+        }
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+        if (--startedActivities == 0) {
+            stallDetector.pause();
+        }
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+    }
+
+    private static class FrameTracker implements Choreographer.FrameCallback {
+        final FrameStats stats = new FrameStats();
+        boolean active = true;
+        long lastFrameNanos;
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!active) {
+                return;
+            }
+            if (lastFrameNanos != 0) {
+                stats.record(frameTimeNanos - lastFrameNanos);
+            }
+            lastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
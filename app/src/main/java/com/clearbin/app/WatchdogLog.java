@@ -0,0 +1,45 @@
+package com.clearbin.app;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded log of watchdog findings. Once full, the oldest entries are
+ * overwritten, so it can stay on for the whole session.
+ */
+public class WatchdogLog {
+
+    private final String[] entries;
+    private int next;
+    private int size;
+
+    public WatchdogLog(int capacity) {
+        entries = new String[capacity];
+    }
+
+    public synchronized void add(long timeMillis, String kind, String detail) {
+        entries[next] = timeMillis + " " + kind + " " + detail;
+        next = (next + 1) % entries.length;
+        size = Math.min(size + 1, entries.length);
+    }
+
+    /** Returns the entries, oldest first. */
+    public synchronized List<String> snapshot() {
+        List<String> list = new ArrayList<>(size);
+        int start = (next - size + entries.length) % entries.length;
+        for (int i = 0; i < size; i++) {
+            list.add(entries[(start + i) % entries.length]);
+        }
+        return list;
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        for (String entry : snapshot()) {
+            writer.write(entry);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,134 @@
+package com.clearbin.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class BackendWarmerTest {
+
+    private static final long IDLE_BEFORE_COLD_MILLIS = 500;
+    private static final long COLD_START_MILLIS = 300;
+    private static final long SCAN_LATENCY_MILLIS = 20;
+
+    private MockWebServer server;
+    private DetectBackendSimulator backend;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+        backend = new DetectBackendSimulator.Builder()
+                .latency(DetectBackendSimulator.LatencyModel.fixed(SCAN_LATENCY_MILLIS))
+                .coldStart(IDLE_BEFORE_COLD_MILLIS, COLD_START_MILLIS)
+                .build();
+        server = new MockWebServer();
+        server.setDispatcher(backend);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    /** The rule {@link BackendWarmer} uses: any answer below 500, like the 405 a POST-only route gives. */
+    private static void assertWarm(Integer code) {
+        assertNotNull(code);
+        assertTrue("got " + code, code > 0 && code < 500);
+    }
+
+    private BackendWarmer warmer(OkHttpClient http, String url, BlockingQueue<Integer> codes) {
+        BackendWarmer warmer = new BackendWarmer(http, url, 1000, 8000, () -> now);
+        warmer.setListener((code, millis) -> codes.add(code));
+        return warmer;
+    }
+
+    /**
+     * Idles the backend into a cold start, optionally warms it up while the
+     * shot is framed, then scans. Returns the scan for inspection; timings are
+     * only printed, the checks are on which request hit the cold start.
+     */
+    private RecordedRequest firstScan(boolean warmUp) throws Exception {
+        OkHttpClient http = new OkHttpClient();
+        String url = server.url("/detect").toString();
+        DetectionClient client = new DetectionClient(http, url, new DirectUpload());
+        BlockingQueue<Integer> codes = new ArrayBlockingQueue<>(4);
+        client.warmer().setListener((code, millis) -> codes.add(code));
+
+        Thread.sleep(IDLE_BEFORE_COLD_MILLIS + 100);
+        int coldStartsBefore = backend.coldStarts;
+        if (warmUp) {
+            assertTrue(client.warmer().warmUp());
+            // The shutter is pressed once the ping is back.
+            assertWarm(codes.poll(5, TimeUnit.SECONDS));
+            assertEquals("the ping should take the cold start", coldStartsBefore + 1, backend.coldStarts);
+        }
+
+        int coldStartsBeforeScan = backend.coldStarts;
+        long start = System.nanoTime();
+        assertTrue(client.detect(new byte[]{1, 2, 3}).isDetected());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("first scan " + (warmUp ? "with" : "without") + " warm-up: " + millis + " ms");
+
+        assertEquals(warmUp ? 0 : 1, backend.coldStarts - coldStartsBeforeScan);
+        RecordedRequest scan;
+        do {
+            scan = server.takeRequest(1, TimeUnit.SECONDS);
+        } while (!"POST".equals(scan.getMethod()));
+        return scan;
+    }
+
+    @Test
+    public void warmUpHidesTheColdStart() throws Exception {
+        RecordedRequest cold = firstScan(false);
+        RecordedRequest warm = firstScan(true);
+
+        assertEquals(0, cold.getSequenceNumber());
+        assertTrue("scan should reuse the warm connection", warm.getSequenceNumber() > 0);
+        assertEquals(2, backend.uploads);
+        assertEquals(2, backend.coldStarts);
+    }
+
+    @Test
+    public void pingsAreRateLimited() throws Exception {
+        BlockingQueue<Integer> codes = new ArrayBlockingQueue<>(4);
+        BackendWarmer warmer = warmer(new OkHttpClient(), server.url("/detect").toString(), codes);
+
+        assertTrue(warmer.warmUp());
+        assertFalse(warmer.warmUp());
+        assertWarm(codes.poll(5, TimeUnit.SECONDS));
+
+        now += 999;
+        assertFalse(warmer.warmUp());
+        now += 1;
+        assertTrue(warmer.warmUp());
+        assertWarm(codes.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void failuresBackOff() throws Exception {
+        String url = server.url("/detect").toString();
+        server.shutdown();
+        BlockingQueue<Integer> codes = new ArrayBlockingQueue<>(4);
+        BackendWarmer warmer = warmer(new OkHttpClient(), url, codes);
+
+        long[] waits = {2000, 4000, 8000, 8000};
+        for (long wait : waits) {
+            assertTrue(warmer.warmUp());
+            assertEquals(-1, (int) codes.poll(5, TimeUnit.SECONDS));
+            now += wait - 1;
+            assertFalse(warmer.warmUp());
+            now += 1;
+        }
+    }
+}
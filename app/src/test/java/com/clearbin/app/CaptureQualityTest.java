@@ -0,0 +1,176 @@
+package com.clearbin.app;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CaptureQualityTest {
+
+    private static final int WIDTH = 512;
+    private static final int HEIGHT = 384;
+    private static final int SCENES = 20;
+
+    /** A wall with a few items on it, with a little sensor noise. */
+    private static int[] scene(long seed, int items) {
+        Random random = new Random(seed);
+        int[] rgb = new int[WIDTH * HEIGHT];
+        int wall = 140 + random.nextInt(60);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int v = wall - y / 12;
+                rgb[y * WIDTH + x] = gray(v);
+            }
+        }
+        for (int n = 0; n < items; n++) {
+            int w = 40 + random.nextInt(140);
+            int h = 40 + random.nextInt(140);
+            int left = random.nextInt(WIDTH - w);
+            int top = random.nextInt(HEIGHT - h);
+            // Items stand out from the wall, like anything worth scanning.
+            int shade = (wall + 60 + random.nextInt(136)) % 256;
+            int color = (shade << 16) | (random.nextInt(256) << 8) | (255 - shade);
+            boolean striped = random.nextBoolean();
+            for (int y = top; y < top + h; y++) {
+                for (int x = left; x < left + w; x++) {
+                    rgb[y * WIDTH + x] = striped && (x / 6) % 2 == 0 ? color ^ 0x505050 : color;
+                }
+            }
+        }
+        return rgb;
+    }
+
+    private static int gray(int v) {
+        v = Math.max(0, Math.min(255, v));
+        return 0xff000000 | (v << 16) | (v << 8) | v;
+    }
+
+    private static int[] blur(int[] src, int radius) {
+        int[] out = src.clone();
+        int[] tmp = new int[src.length];
+        for (int shift = 0; shift <= 16; shift += 8) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int sum = 0;
+                    int n = 0;
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        int xx = Math.max(0, Math.min(WIDTH - 1, x + dx));
+                        sum += (src[y * WIDTH + xx] >> shift) & 0xff;
+                        n++;
+                    }
+                    tmp[y * WIDTH + x] = sum / n;
+                }
+            }
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int sum = 0;
+                    int n = 0;
+                    for (int dy = -radius; dy <= radius; dy++) {
+                        int yy = Math.max(0, Math.min(HEIGHT - 1, y + dy));
+                        sum += tmp[yy * WIDTH + x];
+                        n++;
+                    }
+                    out[y * WIDTH + x] = (out[y * WIDTH + x] & ~(0xff << shift)) | ((sum / n) << shift);
+                }
+            }
+        }
+        return out;
+    }
+
+    private static int[] scale(int[] src, double factor) {
+        int[] out = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            int p = src[i];
+            int r = (int) (((p >> 16) & 0xff) * factor);
+            int g = (int) (((p >> 8) & 0xff) * factor);
+            int b = (int) ((p & 0xff) * factor);
+            out[i] = 0xff000000 | (r << 16) | (g << 8) | b;
+        }
+        return out;
+    }
+
+    private static int[] noisy(int[] src, long seed) {
+        Random random = new Random(seed);
+        int[] out = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            int n = random.nextInt(5) - 2;
+            int p = src[i];
+            int r = Math.max(0, Math.min(255, ((p >> 16) & 0xff) + n));
+            int g = Math.max(0, Math.min(255, ((p >> 8) & 0xff) + n));
+            int b = Math.max(0, Math.min(255, (p & 0xff) + n));
+            out[i] = 0xff000000 | (r << 16) | (g << 8) | b;
+        }
+        return out;
+    }
+
+    private static int verdict(int[] pixels) {
+        return CaptureQuality.check(pixels, WIDTH, HEIGHT).verdict;
+    }
+
+    @Test
+    public void flagsBlurAndDarkness() {
+        int[] sharp = noisy(scene(1, 3), 1);
+
+        assertEquals(CaptureQuality.OK, verdict(sharp));
+        assertEquals(CaptureQuality.BLURRY, verdict(noisy(blur(scene(1, 3), 4), 1)));
+        assertEquals(CaptureQuality.TOO_DARK, verdict(noisy(scale(scene(1, 3), 0.15), 1)));
+    }
+
+    @Test
+    public void passesSingleSharpItemOnPlainWall() {
+        assertEquals(CaptureQuality.OK, verdict(noisy(scene(2, 1), 2)));
+    }
+
+    @Test
+    public void reportsRoundTripsSavedAndFalseRejects() {
+        int bad = 0;
+        int caught = 0;
+        int good = 0;
+        int falseRejects = 0;
+
+        for (long seed = 10; seed < 10 + SCENES; seed++) {
+            int[] scene = scene(seed, 1 + (int) (seed % 4));
+
+            int[][] goodShots = {noisy(scene, seed), noisy(scale(scene, 0.6), seed), noisy(noisy(scene, seed), -seed)};
+            int[][] badShots = {noisy(blur(scene, 4), seed), noisy(blur(scene, 6), seed), noisy(scale(scene, 0.12), seed)};
+
+            for (int[] shot : goodShots) {
+                good++;
+                if (verdict(shot) != CaptureQuality.OK) {
+                    falseRejects++;
+                }
+            }
+            for (int[] shot : badShots) {
+                bad++;
+                if (verdict(shot) != CaptureQuality.OK) {
+                    caught++;
+                }
+            }
+        }
+
+        System.out.println("Quality gate: saved " + caught + " of " + bad + " useless round trips, "
+                + "wrongly rejected " + falseRejects + " of " + good + " good shots");
+        assertTrue(caught >= bad * 9 / 10);
+        assertTrue(falseRejects <= good / 20);
+    }
+
+    @Test
+    public void repeatedChecksAgreeAndLeaveThePixelsAlone() {
+        int[] shot = noisy(scene(3, 3), 3);
+        int[] original = shot.clone();
+        CaptureQuality first = CaptureQuality.check(shot, WIDTH, HEIGHT);
+
+        int runs = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            CaptureQuality quality = CaptureQuality.check(shot, WIDTH, HEIGHT);
+            assertEquals(first.verdict, quality.verdict);
+            assertEquals(first.sharpness, quality.sharpness, 0);
+        }
+        long perCheck = (System.nanoTime() - start) / runs;
+
+        System.out.println("Quality gate: " + perCheck / 1000 + "us per " + WIDTH + "x" + HEIGHT + " check");
+        assertArrayEquals(original, shot);
+    }
+}
@@ -0,0 +1,210 @@
+package com.clearbin.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in for the {@code /detect} backend, served through
+ * {@link okhttp3.mockwebserver.MockWebServer}.
+ *
+ * It takes {@code imgb64} and answers with message, pred_time, confidence,
+ * cluster, cluster_name and materials like the real service, and also speaks
+ * the hash-first handshake of {@link HashFirstUpload}, which it advertises
+ * on every detection response. Latency, cold starts
+ * after idle periods, error rate and the request size limit are scriptable
+ * through {@link Builder}.
+ */
+class DetectBackendSimulator extends Dispatcher {
+
+    static final String DETECTION_JSON = "{\"message\":\"Success\",\"pred_time\":\"0.42\","
+            + "\"confidence\":\"0.91\",\"cluster\":\"3\",\"cluster_name\":\"Plastic Bottle\","
+            + "\"materials\":\"PET\"}";
+
+    private static final String[][] DETECTIONS = {
+            {"3", "Plastic Bottle", "PET"},
+            {"5", "Paper Cup", "Paper, PE lining"},
+            {"7", "Steel Can", "Steel"},
+            {"9", "Wood", "Wood"},
+    };
+
+    /** Server-side processing time for one request. */
+    interface LatencyModel {
+        long nextMillis(Random random);
+
+        static LatencyModel fixed(long millis) {
+            return random -> millis;
+        }
+
+        static LatencyModel uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+
+        /** Long-tailed latency around {@code medianMillis}, typical for inference services. */
+        static LatencyModel logNormal(long medianMillis, double sigma) {
+            return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    static class Builder {
+        private LatencyModel latency = LatencyModel.fixed(0);
+        private long idleBeforeColdMillis = Long.MAX_VALUE;
+        private long coldStartMillis;
+        private double errorRate;
+        private double noDetectionRate;
+        private long maxBodyBytes = Long.MAX_VALUE;
+        private long seed = 1;
+
+        Builder latency(LatencyModel latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /** Adds {@code coldStartMillis} to the first request after {@code idleMillis} without traffic. */
+        Builder coldStart(long idleMillis, long coldStartMillis) {
+            this.idleBeforeColdMillis = idleMillis;
+            this.coldStartMillis = coldStartMillis;
+            return this;
+        }
+
+        Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        Builder noDetectionRate(double noDetectionRate) {
+            this.noDetectionRate = noDetectionRate;
+            return this;
+        }
+
+        Builder maxBodyBytes(long maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+
+        Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        DetectBackendSimulator build() {
+            return new DetectBackendSimulator(this);
+        }
+    }
+
+    private final LatencyModel latency;
+    private final long idleBeforeColdMillis;
+    private final long coldStartMillis;
+    private final double errorRate;
+    private final double noDetectionRate;
+    private final long maxBodyBytes;
+    private final Random random;
+    private final Map<String, String> cache = new HashMap<>();
+
+    /** When the server last finished work, idle time counts from here. */
+    private long lastRequestAt;
+
+    int requests;
+    int uploads;
+    int coldStarts;
+    long bytesReceived;
+
+    DetectBackendSimulator() {
+        this(new Builder());
+    }
+
+    private DetectBackendSimulator(Builder builder) {
+        latency = builder.latency;
+        idleBeforeColdMillis = builder.idleBeforeColdMillis;
+        coldStartMillis = builder.coldStartMillis;
+        errorRate = builder.errorRate;
+        noDetectionRate = builder.noDetectionRate;
+        maxBodyBytes = builder.maxBodyBytes;
+        random = new Random(builder.seed);
+        lastRequestAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        long delay;
+        MockResponse response;
+        synchronized (this) {
+            requests++;
+            bytesReceived += request.getBodySize();
+
+            long now = System.currentTimeMillis();
+            delay = latency.nextMillis(random);
+            if (now - lastRequestAt > idleBeforeColdMillis) {
+                coldStarts++;
+                delay += coldStartMillis;
+            }
+            lastRequestAt = now + delay;
+
+            response = respond(request);
+        }
+        return response.setHeadersDelay(Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return new MockResponse().setResponseCode(405).setHeader("Allow", "POST");
+        }
+        if (request.getBodySize() > maxBodyBytes) {
+            return new MockResponse().setResponseCode(413).setBody("Request Entity Too Large");
+        }
+        if (random.nextDouble() < errorRate) {
+            return new MockResponse().setResponseCode(500).setBody("Internal Server Error");
+        }
+
+        try {
+            JSONObject body = new JSONObject(request.getBody().clone().readUtf8());
+            String hash = body.optString("sha256", null);
+
+            if (!body.has("imgb64")) {
+                String cached = hash != null ? cache.get(hash) : null;
+                return cached != null
+                        ? new MockResponse().setBody(cached).setHeader(HashFirstUpload.LOOKUP_HEADER, "sha256")
+                        : new MockResponse().setResponseCode(404);
+            }
+
+            uploads++;
+            String detection = detection();
+            if (hash != null) {
+                cache.put(hash, detection);
+            }
+            return new MockResponse().setBody(detection).setHeader(HashFirstUpload.LOOKUP_HEADER, "sha256");
+        } catch (JSONException e) {
+            return new MockResponse().setResponseCode(400);
+        }
+    }
+
+    private String detection() throws JSONException {
+        JSONObject json = new JSONObject();
+        if (random.nextDouble() < noDetectionRate) {
+            json.put("message", DetectionResult.NO_DETECTED_MSG);
+            json.put("pred_time", "0.38");
+            json.put("confidence", "0.0");
+            json.put("cluster", "-1");
+            json.put("cluster_name", "");
+            json.put("materials", "");
+            return json.toString();
+        }
+        String[] detection = DETECTIONS[random.nextInt(DETECTIONS.length)];
+        json.put("message", "Success");
+        json.put("pred_time", String.format(Locale.ROOT, "%.2f", 0.3 + random.nextDouble() * 0.4));
+        json.put("confidence", String.format(Locale.ROOT, "%.2f", 0.6 + random.nextDouble() * 0.4));
+        json.put("cluster", detection[0]);
+        json.put("cluster_name", detection[1]);
+        json.put("materials", detection[2]);
+        return json.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.clearbin.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays a list of scans through a {@link DetectionClient} from several
+ * threads and reports throughput and latency percentiles.
+ */
+class DetectLoadDriver {
+
+    static class Report {
+        final int scans;
+        final int errors;
+        /** The part of {@link #errors} where the server answered with a failure status. */
+        final int httpErrors;
+        final long wallNanos;
+        final long[] latencyNanos;
+
+        Report(int scans, int errors, int httpErrors, long wallNanos, long[] latencyNanos) {
+            this.scans = scans;
+            this.errors = errors;
+            this.httpErrors = httpErrors;
+            this.wallNanos = wallNanos;
+            this.latencyNanos = latencyNanos;
+            Arrays.sort(this.latencyNanos);
+        }
+
+        double throughput() {
+            return scans / (wallNanos / 1e9);
+        }
+
+        long percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * latencyNanos.length) - 1;
+            return latencyNanos[Math.max(0, index)] / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d scans, %d errors (%d HTTP), %.1f scans/s, p50=%dms p90=%dms p99=%dms max=%dms",
+                    scans, errors, httpErrors, throughput(), percentileMillis(50), percentileMillis(90),
+                    percentileMillis(99), percentileMillis(100));
+        }
+    }
+
+    /**
+     * A field-like mix of uploads: mostly object crops, with some full frames
+     * where nothing stood out. Random bytes stand in for already-compressed
+     * image data.
+     */
+    static List<byte[]> scanMix(int count, long seed) {
+        Random random = new Random(seed);
+        List<byte[]> scans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int size = random.nextDouble() < 0.7
+                    ? 30 * 1024 + random.nextInt(90 * 1024)
+                    : 300 * 1024 + random.nextInt(300 * 1024);
+            byte[] image = new byte[size];
+            random.nextBytes(image);
+            scans.add(image);
+        }
+        return scans;
+    }
+
+    static Report run(DetectionClient client, List<byte[]> scans, int concurrency) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long[] latencies = new long[scans.size()];
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger httpErrors = new AtomicInteger();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < scans.size(); i++) {
+            final int index = i;
+            pool.execute(() -> {
+                long begin = System.nanoTime();
+                try {
+                    client.detect(scans.get(index));
+                } catch (DetectionHttpException e) {
+                    errors.incrementAndGet();
+                    httpErrors.incrementAndGet();
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+                latencies[index] = System.nanoTime() - begin;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+
+        return new Report(scans.size(), errors.get(), httpErrors.get(), System.nanoTime() - start, latencies);
+    }
+}
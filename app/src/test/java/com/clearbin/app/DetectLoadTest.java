@@ -0,0 +1,109 @@
+package com.clearbin.app;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class DetectLoadTest {
+
+    private final OkHttpClient http = new OkHttpClient();
+    private MockWebServer server;
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private DetectionClient start(DetectBackendSimulator backend) throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(backend);
+        server.start();
+        return new DetectionClient(http, server.url("/detect").toString(), new DirectUpload());
+    }
+
+    @Test
+    public void speaksDetectContract() throws Exception {
+        DetectionClient client = start(new DetectBackendSimulator());
+
+        DetectionResult result = client.detect(new byte[]{1, 2, 3});
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/detect", request.getPath());
+        assertEquals("data:image/jpeg;base64,AQID",
+                new JSONObject(request.getBody().readUtf8()).getString("imgb64"));
+        assertTrue(result.isDetected());
+        assertNotNull(result.predTime);
+        assertNotNull(result.confidence);
+        assertNotNull(result.cluster);
+        assertNotNull(result.materials);
+    }
+
+    @Test
+    public void rejectsOversizedPayload() throws Exception {
+        DetectionClient client = start(new DetectBackendSimulator.Builder().maxBodyBytes(1024).build());
+
+        try {
+            client.detect(new byte[4096]);
+            fail("Expected the upload to be rejected");
+        } catch (DetectionHttpException e) {
+            assertEquals(413, e.code);
+        }
+    }
+
+    @Test
+    public void coldStartDelaysFirstRequestAfterIdle() throws Exception {
+        DetectBackendSimulator backend = new DetectBackendSimulator.Builder()
+                .coldStart(100, 400)
+                .build();
+        DetectionClient client = start(backend);
+        Thread.sleep(150);
+
+        long cold = timeMillis(client);
+        long warm = timeMillis(client);
+        System.out.println("Cold start: first request " + cold + "ms, next " + warm + "ms");
+
+        // The server delays the cold response by at least 400 ms, so that bound
+        // is safe; upper bounds on wall-clock time are not, check structure instead.
+        assertEquals(1, backend.coldStarts);
+        assertEquals(2, backend.requests);
+        assertTrue(cold >= 400);
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void replaysScanMix() throws Exception {
+        DetectBackendSimulator backend = new DetectBackendSimulator.Builder()
+                .latency(DetectBackendSimulator.LatencyModel.logNormal(40, 0.6))
+                .errorRate(0.05)
+                .noDetectionRate(0.2)
+                .maxBodyBytes(700 * 1024)
+                .build();
+        DetectionClient client = start(backend);
+        List<byte[]> scans = DetectLoadDriver.scanMix(60, 7);
+
+        DetectLoadDriver.Report report = DetectLoadDriver.run(client, scans, 4);
+        System.out.println("Load: " + report);
+
+        assertEquals(60, backend.requests);
+        assertTrue(report.errors < 15);
+        assertEquals(report.errors, report.httpErrors);
+        assertTrue(report.percentileMillis(50) >= 10);
+        assertTrue(report.percentileMillis(99) >= report.percentileMillis(50));
+    }
+
+    private static long timeMillis(DetectionClient client) throws Exception {
+        long start = System.nanoTime();
+        client.detect(new byte[16]);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,137 @@
+package com.clearbin.app;
+
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class EventRingTest {
+
+    private static final String[] NAMES = {null, "FIRST", "SECOND", "ERROR"};
+
+    private static final DetectionResult RESULT = new DetectionResult(
+            "Success", "0.42", "0.91", "3", "Plastic Bottle", "PET");
+
+    @Test
+    public void keepsNewestRecords() throws Exception {
+        EventRing ring = new EventRing(3, 2);
+        for (int i = 1; i <= 5; i++) {
+            ring.log(i % 2 == 0 ? 2 : 1, i, i * 10, i * 100);
+        }
+
+        StringWriter out = new StringWriter();
+        ring.writeTo(out, NAMES);
+        String[] lines = out.toString().split("\n");
+
+        assertEquals(3, ring.size());
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].endsWith(" FIRST 3 30 300"));
+        assertTrue(lines[1].endsWith(" SECOND 4 40 400"));
+        assertTrue(lines[2].endsWith(" FIRST 5 50 500"));
+    }
+
+    @Test
+    public void dumpsThrowables() throws Exception {
+        EventRing ring = new EventRing(8, 2);
+        ring.logThrowable(3, 7, new IllegalStateException("boom"));
+
+        StringWriter out = new StringWriter();
+        ring.writeTo(out, NAMES);
+
+        assertTrue(out.toString().contains(" ERROR 7 0 0"));
+        assertTrue(out.toString().contains("throwable #0: java.lang.IllegalStateException: boom"));
+    }
+
+    @Test
+    public void parsesScaledDecimals() {
+        assertEquals(910, EventRing.parseScaled("0.91", 1000));
+        assertEquals(420, EventRing.parseScaled("0.4209", 1000));
+        assertEquals(3, EventRing.parseScaled("3", 1));
+        assertEquals(1500, EventRing.parseScaled("1.5", 1000));
+        assertEquals(-1, EventRing.parseScaled("n/a", 1000));
+        assertEquals(-1, EventRing.parseScaled("", 1000));
+    }
+
+    @Test
+    public void logsWithoutAllocating() {
+        EventRing ring = new EventRing(1024, 4);
+        logScans(ring, 10_000);
+
+        long allocated = allocatedBytes(() -> logScans(ring, 100_000));
+
+        // -1 when the JVM cannot measure per-thread allocation.
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void benchmarkAgainstStringLogging() {
+        EventRing ring = new EventRing(4096, 4);
+        PrintStream logcat = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        int scans = 200_000;
+
+        for (int round = 0; round < 3; round++) {
+            logScans(ring, scans);
+            logScansAsStrings(logcat, scans);
+        }
+
+        long start = System.nanoTime();
+        logScans(ring, scans);
+        long ringNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        logScansAsStrings(logcat, scans);
+        long stringNanos = System.nanoTime() - start;
+
+        // Printed only, timings vary with machine load. logsWithoutAllocating holds
+        // the structural property the ring is there for.
+        System.out.println("Per scan: event ring " + ringNanos / scans + "ns, string logging "
+                + stringNanos / scans + "ns");
+        assertEquals(4096, ring.size());
+    }
+
+    private static void logScans(EventRing ring, int scans) {
+        for (int i = 0; i < scans; i++) {
+            ring.log(EventLog.DETECT_RESULT,
+                    EventRing.parseScaled(RESULT.cluster, 1),
+                    EventRing.parseScaled(RESULT.confidence, 1000),
+                    EventRing.parseScaled(RESULT.predTime, 1000));
+        }
+    }
+
+    /** What the six Log.d calls per detection did: build a line per field and write it out. */
+    private static void logScansAsStrings(PrintStream logcat, int scans) {
+        for (int i = 0; i < scans; i++) {
+            logcat.println("D/MESSAGE: " + RESULT.message);
+            logcat.println("D/PRED_TIME: " + RESULT.predTime);
+            logcat.println("D/CONFIDENCE: " + RESULT.confidence);
+            logcat.println("D/CLUSTER: " + RESULT.cluster);
+            logcat.println("D/CLUSTER_NAME: " + RESULT.clusterName);
+            logcat.println("D/MATERIALS: " + RESULT.materials);
+        }
+    }
+
+    private static long allocatedBytes(Runnable work) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            work.run();
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        work.run();
+        return threads.getThreadAllocatedBytes(id) - before;
+    }
+}
@@ -0,0 +1,148 @@
+package com.clearbin.app;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import static org.junit.Assert.*;
+
+public class ExifThumbnailTest {
+
+    private static byte[] capture;
+    private static byte[] thumbnail;
+
+    @BeforeClass
+    public static void createFixtures() throws IOException {
+        capture = jpeg(image(3000, 2000));
+        thumbnail = jpeg(image(160, 106));
+    }
+
+    private static BufferedImage image(int width, int height) {
+        Random random = new Random(width);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = (x * 255 / width + random.nextInt(24)) & 0xff;
+                image.setRGB(x, y, (v << 16) | ((y * 255 / height) << 8) | (255 - v));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    /** Builds an APP1 EXIF segment whose IFD1 points at {@code thumb}. */
+    private static byte[] exifSegment(byte[] thumb, ByteOrder order) {
+        int ifd1 = 8 + 2 + 4;
+        int thumbOffset = ifd1 + 2 + 2 * 12 + 4;
+        ByteBuffer tiff = ByteBuffer.allocate(thumbOffset + thumb.length).order(order);
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? new byte[]{'I', 'I'} : new byte[]{'M', 'M'});
+        tiff.putShort((short) 42).putInt(8);
+        tiff.putShort((short) 0).putInt(ifd1);
+        tiff.putShort((short) 2);
+        tiff.putShort((short) 0x0201).putShort((short) 4).putInt(1).putInt(thumbOffset);
+        tiff.putShort((short) 0x0202).putShort((short) 4).putInt(1).putInt(thumb.length);
+        tiff.putInt(0);
+        tiff.put(thumb);
+
+        int length = 2 + 6 + tiff.capacity();
+        ByteBuffer segment = ByteBuffer.allocate(2 + length);
+        segment.put((byte) 0xFF).put((byte) 0xE1).putShort((short) length);
+        segment.put(new byte[]{'E', 'x', 'i', 'f', 0, 0}).put(tiff.array());
+        return segment.array();
+    }
+
+    /** Inserts {@code segment} after the JFIF APP0 segment ImageIO writes. */
+    private static byte[] withSegment(byte[] jpeg, byte[] segment) {
+        int app0End = 4 + (((jpeg[4] & 0xff) << 8) | (jpeg[5] & 0xff));
+        byte[] out = new byte[jpeg.length + segment.length];
+        System.arraycopy(jpeg, 0, out, 0, app0End);
+        System.arraycopy(segment, 0, out, app0End, segment.length);
+        System.arraycopy(jpeg, app0End, out, app0End + segment.length, jpeg.length - app0End);
+        return out;
+    }
+
+    private static BufferedImage decode(byte[] jpeg, int sampleSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            ImageReader reader = readers.next();
+            reader.setInput(in);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+            BufferedImage image = reader.read(0, param);
+            reader.dispose();
+            return image;
+        }
+    }
+
+    @Test
+    public void readsLittleEndianThumbnail() throws IOException {
+        byte[] jpeg = withSegment(capture, exifSegment(thumbnail, ByteOrder.LITTLE_ENDIAN));
+
+        assertArrayEquals(thumbnail, ExifThumbnail.read(new ByteArrayInputStream(jpeg)));
+    }
+
+    @Test
+    public void readsBigEndianThumbnail() throws IOException {
+        byte[] jpeg = withSegment(capture, exifSegment(thumbnail, ByteOrder.BIG_ENDIAN));
+
+        assertArrayEquals(thumbnail, ExifThumbnail.read(new ByteArrayInputStream(jpeg)));
+    }
+
+    @Test
+    public void returnsNullWithoutExif() throws IOException {
+        assertNull(ExifThumbnail.read(new ByteArrayInputStream(capture)));
+        assertNull(ExifThumbnail.read(new ByteArrayInputStream(new byte[]{1, 2, 3})));
+        assertNull(ExifThumbnail.read(new ByteArrayInputStream(Arrays.copyOf(capture, 10))));
+    }
+
+    @Test
+    public void thumbnailIsAFractionOfTheDisplayDecode() throws IOException {
+        File file = File.createTempFile("capture", ".jpg");
+        file.deleteOnExit();
+        Files.write(file.toPath(), withSegment(capture, exifSegment(thumbnail, ByteOrder.LITTLE_ENDIAN)));
+
+        // Warm up the decoder so the comparison is not dominated by class loading.
+        decode(thumbnail, 1);
+        decode(capture, 2);
+
+        long start = System.nanoTime();
+        byte[] embedded = ExifThumbnail.read(file.getPath());
+        BufferedImage preview = decode(embedded, 1);
+        long firstPaint = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BufferedImage display = decode(Files.readAllBytes(file.toPath()), 2);
+        long displayImage = System.nanoTime() - start;
+
+        System.out.println("Result preview: first paint " + firstPaint / 1000 + "us, display image "
+                + displayImage / 1000 + "us");
+
+        // Timings vary with machine load, so only the work each step does is checked.
+        assertArrayEquals(thumbnail, embedded);
+        assertTrue(embedded.length * 10 < file.length());
+        assertEquals(160, preview.getWidth());
+        assertEquals(1500, display.getWidth());
+        assertTrue((long) preview.getWidth() * preview.getHeight() * 50 < (long) display.getWidth() * display.getHeight());
+    }
+}
@@ -0,0 +1,145 @@
+package com.clearbin.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class HashFirstUploadTest {
+
+    private final OkHttpClient http = new OkHttpClient();
+    private MockWebServer server;
+    private DetectBackendSimulator backend;
+
+    @Before
+    public void setUp() throws Exception {
+        backend = new DetectBackendSimulator();
+        server = new MockWebServer();
+        server.setDispatcher(backend);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private DetectionClient client(UploadProtocol protocol) {
+        return new DetectionClient(http, server.url("/detect").toString(), protocol);
+    }
+
+    private static byte[] image(long seed) {
+        byte[] data = new byte[40 * 1024];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * A scan session with retries after timeouts, rotated rescans of the same
+     * capture and fresh items, as seen in the field.
+     */
+    private static List<byte[]> scanLog() {
+        long[] seeds = {1, 1, 2, 3, 3, 3, 4, 5, 5, 6, 2, 7, 8, 8, 9, 10, 10, 1, 11, 12};
+        List<byte[]> log = new ArrayList<>();
+        for (long seed : seeds) {
+            log.add(image(seed));
+        }
+        return log;
+    }
+
+    @Test
+    public void uploadsOnMissAndReusesOnHit() throws Exception {
+        DetectionClient client = client(new HashFirstUpload(ContentHasher.SHA_256));
+
+        DetectionResult first = client.detect(image(42));
+        DetectionResult second = client.detect(image(42));
+
+        assertTrue(first.isDetected());
+        assertEquals(first.clusterName, second.clusterName);
+        assertEquals(1, backend.uploads);
+        assertEquals(2, backend.requests);
+    }
+
+    @Test
+    public void neverProbesServerThatDoesNotAdvertiseLookup() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return request.getBody().clone().readUtf8().contains("imgb64")
+                        ? new MockResponse().setBody(DetectBackendSimulator.DETECTION_JSON)
+                        : new MockResponse().setResponseCode(500);
+            }
+        });
+        DetectionClient client = client(new HashFirstUpload(ContentHasher.SHA_256));
+
+        assertTrue(client.detect(image(42)).isDetected());
+        assertTrue(client.detect(image(42)).isDetected());
+
+        assertEquals(2, server.getRequestCount());
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("imgb64"));
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("imgb64"));
+    }
+
+    @Test
+    public void fallsBackToUploadWhenLookupAnswersWithoutDetection() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = request.getBody().clone().readUtf8().contains("imgb64")
+                        ? new MockResponse().setBody(DetectBackendSimulator.DETECTION_JSON)
+                        : new MockResponse().setBody("{\"error\":\"unknown field sha256\"}");
+                return response.setHeader(HashFirstUpload.LOOKUP_HEADER, "sha256");
+            }
+        });
+        DetectionClient client = client(new HashFirstUpload(ContentHasher.SHA_256));
+
+        client.detect(image(42));
+        DetectionResult result = client.detect(image(42));
+
+        assertTrue(result.isDetected());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void sha256MatchesKnownDigest() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                ContentHasher.SHA_256.hash("abc".getBytes()));
+    }
+
+    @Test
+    public void replayedScanLogSendsFewerBytes() throws Exception {
+        List<byte[]> log = scanLog();
+
+        DetectionClient direct = client(new DirectUpload());
+        for (byte[] image : log) {
+            direct.detect(image);
+        }
+        long directBytes = backend.bytesReceived;
+
+        backend = new DetectBackendSimulator();
+        server.setDispatcher(backend);
+        DetectionClient hashFirst = client(new HashFirstUpload(ContentHasher.SHA_256));
+        for (byte[] image : log) {
+            hashFirst.detect(image);
+        }
+        long hashFirstBytes = backend.bytesReceived;
+
+        System.out.println("Scan log: " + log.size() + " scans, " + backend.uploads + " uploads, "
+                + hashFirstBytes + " of " + directBytes + " bytes ("
+                + (100 - hashFirstBytes * 100 / directBytes) + "% saved)");
+
+        assertEquals(12, backend.uploads);
+        assertTrue(hashFirstBytes < directBytes * 2 / 3);
+    }
+}
@@ -0,0 +1,175 @@
+package com.clearbin.app;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImagePreprocessorTest {
+
+    private static int[] noise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        return argb;
+    }
+
+    @Test
+    public void averagesEachBlockAndNormalizes() {
+        int[] argb = {
+                0xff000000, 0xff0000ff, 0xffff0000, 0xffff0000,
+                0xff000000, 0xff0000ff, 0xff00ff00, 0xff00ff00,
+        };
+        byte[] rgb = new byte[2 * 3];
+        float[] normalized = new float[2 * 3];
+
+        ImagePreprocessor preprocessor = new ImagePreprocessor(2, new float[]{0, 0, 0}, new float[]{1, 1, 1});
+        preprocessor.process(argb, 4, 2, 2, 1, rgb, normalized);
+        preprocessor.shutdown();
+
+        assertArrayEquals(new byte[]{0, 0, (byte) 128, (byte) 128, (byte) 128, 0}, rgb);
+        assertEquals(0f, normalized[0], 1e-6);
+        assertEquals(128 / 255f, normalized[1], 1e-6);
+        assertEquals(128 / 255f, normalized[3], 1e-6);
+        assertEquals(0f, normalized[5], 1e-6);
+    }
+
+    @Test
+    public void parallelOutputMatchesSequential() {
+        int width = 1531;
+        int height = 1017;
+        int[] argb = noise(width, height, 7);
+        int dstWidth = 331;
+        int dstHeight = 229;
+
+        ImagePreprocessor sequential = new ImagePreprocessor(1, ImagePreprocessor.IMAGENET_MEAN, ImagePreprocessor.IMAGENET_STD);
+        ImagePreprocessor parallel = new ImagePreprocessor(4, ImagePreprocessor.IMAGENET_MEAN, ImagePreprocessor.IMAGENET_STD);
+        byte[] expectedRgb = new byte[dstWidth * dstHeight * 3];
+        float[] expectedNormalized = new float[dstWidth * dstHeight * 3];
+        byte[] rgb = new byte[dstWidth * dstHeight * 3];
+        float[] normalized = new float[dstWidth * dstHeight * 3];
+
+        sequential.process(argb, width, height, dstWidth, dstHeight, expectedRgb, expectedNormalized);
+        parallel.process(argb, width, height, dstWidth, dstHeight, rgb, normalized);
+        sequential.shutdown();
+        parallel.shutdown();
+
+        assertArrayEquals(expectedRgb, rgb);
+        assertArrayEquals(expectedNormalized, normalized, 0f);
+    }
+
+    @Test
+    public void buffersAreReusedAcrossSizes() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor();
+        byte[] rgb = new byte[640 * 480 * 3];
+
+        preprocessor.process(noise(1280, 960, 1), 1280, 960, 640, 480, rgb, null);
+        Arrays.fill(rgb, (byte) 0);
+        preprocessor.process(new int[]{0xff102030, 0xff102030, 0xff102030, 0xff102030}, 2, 2, 1, 1, rgb, null);
+        preprocessor.shutdown();
+
+        assertArrayEquals(new byte[]{0x10, 0x20, 0x30}, Arrays.copyOf(rgb, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUpscaling() {
+        new ImagePreprocessor().process(new int[4], 2, 2, 4, 4, new byte[48], null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyTarget() {
+        new ImagePreprocessor().process(new int[4], 2, 2, 0, 2, new byte[12], null);
+    }
+
+    @Test
+    public void repeatedScansDoNotAllocate() {
+        int width = 2000;
+        int height = 1500;
+        int[] argb = noise(width, height, 5);
+        byte[] rgb = new byte[500 * 375 * 3];
+        float[] normalized = new float[500 * 375 * 3];
+        ImagePreprocessor preprocessor = new ImagePreprocessor(4, ImagePreprocessor.IMAGENET_MEAN, ImagePreprocessor.IMAGENET_STD);
+        for (int i = 0; i < 5; i++) {
+            preprocessor.process(argb, width, height, 500, 375, rgb, normalized);
+        }
+
+        long allocated = allocatedBytesOfAllThreads(() -> {
+            for (int i = 0; i < 20; i++) {
+                preprocessor.process(argb, width, height, 500, 375, rgb, normalized);
+            }
+        });
+        preprocessor.shutdown();
+
+        // A fresh task per band would cost several KB per scan; allow only pool bookkeeping.
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+
+    private static long allocatedBytesOfAllThreads(Runnable action) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threads.getAllThreadIds();
+        long before = sum(threads.getThreadAllocatedBytes(ids));
+        action.run();
+        // Threads started during the action are not counted, the warm-up above starts them all.
+        return sum(threads.getThreadAllocatedBytes(ids)) - before;
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += Math.max(0, value);
+        }
+        return total;
+    }
+
+    /**
+     * Not a pass/fail check: prints the time to preprocess typical captures
+     * at each parallelism up to the core count of the machine running it.
+     */
+    @Test
+    public void benchmarkSpeedupVersusCores() {
+        int[][] captures = {{4000, 3000}, {3264, 2448}, {1920, 1080}};
+        int dstWidth = 1024;
+        int dstHeight = 768;
+        byte[] rgb = new byte[dstWidth * dstHeight * 3];
+        float[] normalized = new float[dstWidth * dstHeight * 3];
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int[] size : captures) {
+            int[] argb = noise(size[0], size[1], 3);
+            int width = Math.min(dstWidth, size[0]);
+            int height = Math.min(dstHeight, size[1]);
+            double baseline = 0;
+            for (int parallelism = 1; parallelism <= cores; parallelism = parallelism < cores ? Math.min(parallelism * 2, cores) : cores + 1) {
+                ImagePreprocessor preprocessor = new ImagePreprocessor(parallelism, ImagePreprocessor.IMAGENET_MEAN, ImagePreprocessor.IMAGENET_STD);
+                double millis = medianMillis(preprocessor, argb, size[0], size[1], width, height, rgb, normalized);
+                preprocessor.shutdown();
+                if (parallelism == 1) {
+                    baseline = millis;
+                }
+                System.out.println(String.format("%dx%d -> %dx%d on %d thread(s): %.1f ms, speedup %.2fx",
+                        size[0], size[1], width, height, parallelism, millis, baseline / millis));
+            }
+        }
+    }
+
+    private static double medianMillis(ImagePreprocessor preprocessor, int[] argb, int width, int height,
+                                       int dstWidth, int dstHeight, byte[] rgb, float[] normalized) {
+        for (int i = 0; i < 3; i++) {
+            preprocessor.process(argb, width, height, dstWidth, dstHeight, rgb, normalized);
+        }
+        double[] runs = new double[7];
+        for (int i = 0; i < runs.length; i++) {
+            long start = System.nanoTime();
+            preprocessor.process(argb, width, height, dstWidth, dstHeight, rgb, normalized);
+            runs[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(runs);
+        return runs[runs.length / 2];
+    }
+}
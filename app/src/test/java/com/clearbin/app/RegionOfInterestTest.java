@@ -0,0 +1,117 @@
+package com.clearbin.app;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class RegionOfInterestTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    /** A grainy wall with a high-contrast, textured item at the given bounds. */
+    private static int[] scene(int left, int top, int right, int bottom, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value;
+                if (x >= left && x < right && y >= top && y < bottom) {
+                    value = ((x / 7 + y / 7) % 2 == 0) ? 30 : 220;
+                } else {
+                    value = 120 + random.nextInt(16);
+                }
+                pixels[y * WIDTH + x] = 0xff000000 | (value << 16) | (value << 8) | value;
+            }
+        }
+        return pixels;
+    }
+
+    private static int[] downsample(int[] pixels, int factor) {
+        int width = WIDTH / factor;
+        int height = HEIGHT / factor;
+        int[] out = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                out[y * width + x] = pixels[(y * factor) * WIDTH + x * factor];
+            }
+        }
+        return out;
+    }
+
+    private static RegionOfInterest findOnThumbnail(int[] pixels) {
+        int[] thumbnail = downsample(pixels, 5);
+        return RegionOfInterest.find(thumbnail, WIDTH / 5, HEIGHT / 5)
+                .scale(WIDTH / 5, HEIGHT / 5, WIDTH, HEIGHT);
+    }
+
+    private static byte[] jpeg(int[] pixels, RegionOfInterest region) throws IOException {
+        BufferedImage image = new BufferedImage(region.width(), region.height(), BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, region.width(), region.height(), pixels, region.top * WIDTH + region.left, WIDTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void cropsAroundCentredObject() {
+        RegionOfInterest region = findOnThumbnail(scene(240, 160, 400, 320, 1));
+
+        assertTrue(region.left <= 240 && region.top <= 160);
+        assertTrue(region.right >= 400 && region.bottom >= 320);
+        assertTrue(region.width() * region.height() < WIDTH * HEIGHT / 2);
+    }
+
+    @Test
+    public void cropsAroundOffCentreObject() {
+        RegionOfInterest region = findOnThumbnail(scene(20, 300, 180, 460, 2));
+
+        assertTrue(region.left <= 20 && region.top <= 300);
+        assertTrue(region.right >= 180 && region.bottom >= 460);
+        assertTrue(region.right < WIDTH / 2 && region.top > HEIGHT / 3);
+    }
+
+    @Test
+    public void keepsFullFrameWhenObjectFillsIt() {
+        RegionOfInterest region = findOnThumbnail(scene(10, 10, WIDTH - 10, HEIGHT - 10, 3));
+
+        assertTrue(region.isFullFrame(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void keepsFullFrameWhenNothingStandsOut() {
+        RegionOfInterest region = findOnThumbnail(scene(0, 0, 0, 0, 4));
+
+        assertTrue(region.isFullFrame(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void scaleRoundsOutwards() {
+        RegionOfInterest region = new RegionOfInterest(1, 1, 3, 3).scale(4, 4, 10, 10);
+
+        assertEquals(2, region.left);
+        assertEquals(2, region.top);
+        assertEquals(8, region.right);
+        assertEquals(8, region.bottom);
+    }
+
+    @Test
+    public void croppedUploadIsSmaller() throws IOException {
+        int[] pixels = scene(240, 160, 400, 320, 5);
+        RegionOfInterest region = findOnThumbnail(pixels);
+
+        int full = jpeg(pixels, new RegionOfInterest(0, 0, WIDTH, HEIGHT)).length;
+        int cropped = jpeg(pixels, region).length;
+        System.out.println("ROI upload: " + cropped + " of " + full + " bytes ("
+                + (100 - cropped * 100 / full) + "% saved)");
+
+        assertTrue(cropped < full / 2);
+    }
+}
@@ -0,0 +1,143 @@
+package com.clearbin.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+public class ScanSessionTest {
+
+    /** Stands in for the main thread: session state is only touched here. */
+    private final ExecutorService main = Executors.newSingleThreadExecutor();
+    private final ExecutorService worker = Executors.newCachedThreadPool();
+    private MockWebServer server;
+    private DetectionClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new DetectBackendSimulator.Builder()
+                .latency(DetectBackendSimulator.LatencyModel.fixed(400))
+                .build());
+        server.start();
+        client = new DetectionClient(new OkHttpClient(), server.url("/detect").toString(), new DirectUpload());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        worker.shutdownNow();
+        main.shutdownNow();
+        server.shutdown();
+    }
+
+    /** What a {@code ResultActivity} instance would have painted and shown. */
+    private static class Screen implements ScanSession.Listener<String> {
+        final List<String> images = new ArrayList<>();
+        final List<DetectionResult> results = new ArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        @Override
+        public void onPreview(String preview) {
+            images.add(preview);
+        }
+
+        @Override
+        public void onImage(String image) {
+            images.add(image);
+        }
+
+        @Override
+        public void onResult(DetectionResult result) {
+            results.add(result);
+            finished.countDown();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            finished.countDown();
+        }
+    }
+
+    private void onMain(Runnable action) throws Exception {
+        main.submit(action).get(5, TimeUnit.SECONDS);
+    }
+
+    private Runnable scanJob(ScanSession<String> session) {
+        return () -> {
+            session.publishPreview("preview");
+            session.publishImage("image");
+            try {
+                session.publishResult(client.detect(new byte[]{1, 2, 3}));
+            } catch (Exception e) {
+                session.publishError(e);
+            }
+        };
+    }
+
+    /** What {@code onCreate} and {@code onStart} of a new activity instance do. */
+    private Screen open(ScanSession<String> session) throws Exception {
+        Screen screen = new Screen();
+        onMain(() -> {
+            session.startOnce(worker, scanJob(session));
+            session.attach(screen);
+        });
+        return screen;
+    }
+
+    @Test
+    public void rotatingMidRequestReattachesToTheSameCall() throws Exception {
+        ScanSession<String> session = new ScanSession<>(main);
+        Screen before = open(session);
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+
+        onMain(() -> session.detach(before));
+        Screen after = open(session);
+
+        assertTrue(after.finished.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertTrue(before.results.isEmpty());
+        assertEquals(1, after.results.size());
+        assertTrue(after.results.get(0).isDetected());
+        assertEquals("image", after.images.get(0));
+    }
+
+    @Test
+    public void recreatingAfterTheResultReusesIt() throws Exception {
+        ScanSession<String> session = new ScanSession<>(main);
+        Screen before = open(session);
+        assertTrue(before.finished.await(5, TimeUnit.SECONDS));
+
+        onMain(() -> session.detach(before));
+        Screen after = open(session);
+
+        assertEquals(1, after.results.size());
+        assertSame(before.results.get(0), after.results.get(0));
+        assertEquals(1, after.images.size());
+        assertEquals("image", after.images.get(0));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelledSessionDropsTheLateResult() throws Exception {
+        ScanSession<String> session = new ScanSession<>(main);
+        Screen screen = open(session);
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+
+        session.cancel();
+
+        assertFalse(screen.finished.await(1, TimeUnit.SECONDS));
+        onMain(() -> assertFalse(session.isFinished()));
+        assertTrue(screen.results.isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+package com.clearbin.app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+public class TypeaheadEngineTest {
+
+    private static final long DEBOUNCE_MS = 300;
+    private static final List<String> ITEMS = Arrays.asList(
+            "Paper Cup", "Paper Bag", "Pizza Box", "Plastic Bag", "Plastic Bottle",
+            "Plastic Cup", "Plastic Straw", "Steel Can", "Wood", "Glass Jar");
+
+    /** Scheduler driven by a fake clock. */
+    private static class FakeScheduler implements TypeaheadEngine.Scheduler {
+        private final List<Long> due = new ArrayList<>();
+        private final List<Runnable> tasks = new ArrayList<>();
+        long now;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            due.add(now + delayMillis);
+            tasks.add(task);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i) == task) {
+                    tasks.remove(i);
+                    due.remove(i);
+                }
+            }
+        }
+
+        void advance(long millis) {
+            now += millis;
+            for (int i = 0; i < tasks.size(); ) {
+                if (due.get(i) <= now) {
+                    due.remove(i);
+                    tasks.remove(i).run();
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private final List<String> requests = new ArrayList<>();
+    private final List<String> delivered = new ArrayList<>();
+    private final Queue<Runnable> queuedLookups = new ArrayDeque<>();
+    private FakeScheduler scheduler;
+
+    private final TypeaheadEngine.Backend backend = (query, maxResults) -> {
+        requests.add(query);
+        List<String> results = new ArrayList<>();
+        for (Iterator<String> it = ITEMS.iterator(); it.hasNext() && results.size() < maxResults; ) {
+            String item = it.next();
+            if (item.toLowerCase(Locale.ROOT).contains(query)) {
+                results.add(item);
+            }
+        }
+        return results;
+    };
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+    }
+
+    private TypeaheadEngine engine(boolean queueLookups) {
+        return new TypeaheadEngine(backend, scheduler,
+                queueLookups ? queuedLookups::add : Runnable::run, Runnable::run,
+                (query, results) -> delivered.add(query + "=" + results.size()),
+                DEBOUNCE_MS, 4, 16);
+    }
+
+    private void type(TypeaheadEngine engine, String text, long keystrokeMillis) {
+        for (int i = 1; i <= text.length(); i++) {
+            engine.onQueryChanged(text.substring(0, i));
+            scheduler.advance(keystrokeMillis);
+        }
+    }
+
+    @Test
+    public void fastTypingIssuesOneRequest() {
+        TypeaheadEngine engine = engine(false);
+
+        type(engine, "plastic bottle", 80);
+        scheduler.advance(DEBOUNCE_MS);
+
+        assertEquals(Arrays.asList("plastic bottle"), requests);
+        assertEquals(Arrays.asList("plastic bottle=1"), delivered);
+    }
+
+    @Test
+    public void requestsAreBoundedByPauses() {
+        TypeaheadEngine engine = engine(false);
+
+        // Three bursts of typing separated by pauses longer than the debounce.
+        type(engine, "st", 50);
+        scheduler.advance(DEBOUNCE_MS);
+        type(engine, "steel", 50);
+        scheduler.advance(DEBOUNCE_MS);
+        engine.onQueryChanged("w");
+        scheduler.advance(DEBOUNCE_MS);
+
+        assertTrue(requests.size() <= 3);
+    }
+
+    @Test
+    public void refinesCompleteCachedPrefixLocally() {
+        TypeaheadEngine engine = engine(false);
+
+        engine.onQueryChanged("pa");
+        scheduler.advance(DEBOUNCE_MS);
+        type(engine, "paper", 200);
+        engine.onQueryChanged("paper c");
+
+        assertEquals(Arrays.asList("pa"), requests);
+        assertEquals("paper c=1", delivered.get(delivered.size() - 1));
+    }
+
+    @Test
+    public void truncatedPrefixResultGoesToBackend() {
+        TypeaheadEngine engine = engine(false);
+
+        // "p" matches more than maxResults items, so it cannot be refined.
+        engine.onQueryChanged("p");
+        scheduler.advance(DEBOUNCE_MS);
+        engine.onQueryChanged("pl");
+        scheduler.advance(DEBOUNCE_MS);
+
+        assertEquals(Arrays.asList("p", "pl"), requests);
+    }
+
+    @Test
+    public void repeatedQueryIsServedFromCache() {
+        TypeaheadEngine engine = engine(false);
+
+        engine.onQueryChanged("wood");
+        scheduler.advance(DEBOUNCE_MS);
+        engine.onQueryChanged("");
+        engine.onQueryChanged("Wood ");
+
+        assertEquals(1, requests.size());
+        assertEquals(Arrays.asList("wood=1", "=0", "wood=1"), delivered);
+    }
+
+    @Test
+    public void supersededLookupIsCancelled() {
+        TypeaheadEngine engine = engine(true);
+
+        engine.onQueryChanged("gl");
+        scheduler.advance(DEBOUNCE_MS);
+        engine.onQueryChanged("gla");
+        scheduler.advance(DEBOUNCE_MS);
+        while (!queuedLookups.isEmpty()) {
+            queuedLookups.poll().run();
+        }
+
+        assertEquals(Arrays.asList("gla"), requests);
+        assertEquals(Arrays.asList("gla=1"), delivered);
+    }
+}